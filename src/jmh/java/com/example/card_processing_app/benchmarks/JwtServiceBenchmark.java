@@ -0,0 +1,92 @@
+package com.example.card_processing_app.benchmarks;
+
+import com.example.card_processing_app.config.token.JwtService;
+import com.example.card_processing_app.config.token.VerifiedToken;
+import com.example.card_processing_app.entities.Role;
+import com.example.card_processing_app.entities.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Per-request token work of JwtAuthenticationFilter: the previous implementation (key rebuilt and token parsed
+// three times) against one parse with a prebuilt parser, with and without the verified-token cache.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtServiceBenchmark {
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B1234";
+    private static final long EXPIRATION = TimeUnit.DAYS.toMillis(1);
+
+    private JwtService uncachedService;
+    private JwtService cachedService;
+    private String token;
+    private String email;
+
+    @Setup
+    public void setUp() {
+        uncachedService = new JwtService(SECRET, EXPIRATION, 0, 0, new SimpleMeterRegistry());
+        cachedService = new JwtService(SECRET, EXPIRATION, 10_000, 300, new SimpleMeterRegistry());
+
+        Role role = new Role();
+        role.setName("USER");
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("bench@example.com");
+        user.setRoles(Set.of(role));
+
+        token = uncachedService.generateToken(user);
+        email = user.getEmail();
+        cachedService.verify(token);
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String subject = legacyClaims(token).getSubject();
+        boolean sameUser = legacyClaims(token).getSubject().equals(subject);
+        return sameUser && !legacyClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean singleParse() {
+        VerifiedToken verified = uncachedService.verify(token);
+        return verified.email().equals(email) && !verified.isExpired();
+    }
+
+    @Benchmark
+    public boolean cachedVerification() {
+        VerifiedToken verified = cachedService.verify(token);
+        return verified.email().equals(email) && !verified.isExpired();
+    }
+
+    private Claims legacyClaims(String jwt) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.card_processing_app.benchmarks;
+
+import com.example.card_processing_app.dto.response.CardResponseDto;
+import com.example.card_processing_app.dto.response.TransactionResponseDto;
+import com.example.card_processing_app.entities.Account;
+import com.example.card_processing_app.entities.Card;
+import com.example.card_processing_app.entities.Transaction;
+import com.example.card_processing_app.entities.User;
+import com.example.card_processing_app.enums.CardType;
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.enums.TransactionStatus;
+import com.example.card_processing_app.enums.TransactionType;
+import com.example.card_processing_app.mapper.CardMapper;
+import com.example.card_processing_app.mapper.TransactionMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Entity to response DTO mapping of cards and ledger rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+    private Card card;
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("bench@example.com");
+
+        Account account = new Account();
+        account.setId(UUID.randomUUID());
+        account.setAccountNumber("20208000900000000001");
+        account.setBalance(new BigDecimal("5000000.0000"));
+        account.setUser(user);
+
+        card = new Card();
+        card.setId(UUID.randomUUID());
+        card.setCardNumber("8600000000000001");
+        card.setExpiryDate("12/29");
+        card.setCvv("123");
+        card.setCardType(CardType.values()[0]);
+        card.setAccount(account);
+
+        transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setCreatedAt(LocalDateTime.now());
+        transaction.setCard(card);
+        transaction.setExternalId("EXT-1");
+        transaction.setAmount(new BigDecimal("125000.00"));
+        transaction.setAfterBalance(new BigDecimal("4875000.00"));
+        transaction.setCurrency(CurrencyType.UZS);
+        transaction.setType(TransactionType.DEBIT);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setDescription("lunch");
+    }
+
+    @Benchmark
+    public CardResponseDto cardToDto() {
+        return CardMapper.toDto(card);
+    }
+
+    @Benchmark
+    public TransactionResponseDto transactionToDto() {
+        return TransactionMapper.toDto(transaction);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.card_processing_app.benchmarks;
+
+import com.example.card_processing_app.dto.response.TransactionResponseDto;
+import com.example.card_processing_app.entities.Card;
+import com.example.card_processing_app.entities.Transaction;
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.enums.TransactionStatus;
+import com.example.card_processing_app.enums.TransactionType;
+import com.example.card_processing_app.repositories.TransactionHistoryRepository;
+import com.example.card_processing_app.repositories.TransactionLedgerRepository;
+import com.example.card_processing_app.services.TransactionPartitioningService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Ledger insert throughput and history page latency with the transactions indexes of changelog-004 against
+// those of changelog-007. Needs a scratch PostgreSQL database, the benchmark owns the schema it runs in:
+// mvn -Pjmh test-compile exec:exec -Djmh.args="TransactionIndexBenchmark -jvmArgs -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench"
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionIndexBenchmark {
+    private static final String SCHEMA = "transactions_index_bench";
+    private static final int CARDS = 1_000;
+    private static final int SEED_CHUNK = 10_000;
+    private static final int HISTORY_DAYS = 60;
+
+    // changelog-004 without the card foreign key, the benchmark schema has no cards table
+    private static final String TABLE_DDL = """
+            CREATE TABLE transactions (
+                id UUID NOT NULL,
+                created_at TIMESTAMP NOT NULL,
+                card_id UUID NOT NULL,
+                target_card_id UUID NOT NULL,
+                external_id VARCHAR(100),
+                reference_id UUID NOT NULL,
+                amount DECIMAL(19, 2) NOT NULL,
+                status VARCHAR(20) NOT NULL,
+                description TEXT,
+                idempotency_key VARCHAR(255) NOT NULL,
+                before_balance DECIMAL(19, 2) NOT NULL,
+                after_balance DECIMAL(19, 2) NOT NULL,
+                type VARCHAR(20) NOT NULL,
+                currency VARCHAR(3) NOT NULL,
+                purpose VARCHAR(20) NOT NULL,
+                exchange_rate DECIMAL(19, 6),
+                original_amount DECIMAL(19, 2),
+                original_currency VARCHAR(3),
+                failure_reason VARCHAR(500),
+                CONSTRAINT pk_transactions PRIMARY KEY (id, created_at),
+                CONSTRAINT chk_transaction_amount_positive CHECK (amount > 0)
+            ) PARTITION BY RANGE (created_at)""";
+
+    public enum IndexSet {
+        CHANGELOG_004(List.of(
+                "CREATE INDEX idx_transactions_card_at ON transactions(card_id, created_at)",
+                "CREATE INDEX idx_transactions_reference_id ON transactions(reference_id)",
+                "CREATE INDEX idx_transactions_idempotency_key ON transactions(idempotency_key)",
+                "CREATE INDEX idx_transactions_external_id ON transactions(external_id) WHERE external_id IS NOT NULL")),
+        CHANGELOG_007(List.of(
+                "CREATE INDEX idx_transactions_card_history ON transactions (card_id, created_at DESC, id DESC) " +
+                        "INCLUDE (external_id, after_balance, amount, currency, purpose, type, status, description)",
+                "CREATE INDEX idx_transactions_created_at_brin ON transactions USING brin (created_at) WITH (pages_per_range = 32)",
+                "CREATE INDEX idx_transactions_reference_id ON transactions(reference_id)",
+                "CREATE INDEX idx_transactions_external_id ON transactions(external_id) WHERE external_id IS NOT NULL"));
+
+        private final List<String> statements;
+
+        IndexSet(List<String> statements) {
+            this.statements = statements;
+        }
+    }
+
+    @Param({"CHANGELOG_004", "CHANGELOG_007"})
+    private IndexSet indexSet;
+
+    @Param({"500000"})
+    private int seedRows;
+
+    private SingleConnectionDataSource dataSource;
+    private TransactionLedgerRepository ledgerRepository;
+    private TransactionHistoryRepository historyRepository;
+    private List<Card> cards;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/card_processing_bench");
+        dataSource = new SingleConnectionDataSource(url,
+                System.getProperty("bench.jdbc.user", "postgres"),
+                System.getProperty("bench.jdbc.password", "postgres"),
+                true);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA);
+        jdbcTemplate.execute(TABLE_DDL);
+        jdbcTemplate.execute("CREATE TABLE transactions_default PARTITION OF transactions DEFAULT");
+
+        TransactionPartitioningService partitioningService = new TransactionPartitioningService(jdbcTemplate);
+        for (int month = -3; month <= 1; month++) {
+            partitioningService.createPartitionIfNotExist(LocalDateTime.now().plusMonths(month));
+        }
+        indexSet.statements.forEach(jdbcTemplate::execute);
+
+        cards = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) {
+            Card card = new Card();
+            card.setId(UUID.randomUUID());
+            cards.add(card);
+        }
+
+        ledgerRepository = new TransactionLedgerRepository(jdbcTemplate);
+        historyRepository = new TransactionHistoryRepository(jdbcTemplate);
+
+        LocalDateTime start = LocalDateTime.now().minusDays(HISTORY_DAYS);
+        long stepMillis = TimeUnit.DAYS.toMillis(HISTORY_DAYS) / seedRows;
+        List<Transaction> chunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < seedRows; i++) {
+            chunk.add(row(start.plusNanos(TimeUnit.MILLISECONDS.toNanos(i * stepMillis))));
+            if (chunk.size() == SEED_CHUNK) {
+                ledgerRepository.copy(chunk);
+                chunk.clear();
+            }
+        }
+        ledgerRepository.copy(chunk);
+        jdbcTemplate.execute("VACUUM ANALYZE transactions");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        dataSource.destroy();
+    }
+
+    // the two ledger rows of one transfer in one statement, as TransferExecutionService writes them
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void insertTransfer() {
+        LocalDateTime now = LocalDateTime.now();
+        ledgerRepository.insert(List.of(row(now), row(now)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public List<TransactionResponseDto> latestHistoryPage() {
+        Card card = cards.get(ThreadLocalRandom.current().nextInt(CARDS));
+        LocalDateTime now = LocalDateTime.now();
+        return historyRepository.findLatest(card.getId(), now.minusDays(90), now.plusDays(1), 21);
+    }
+
+    private Transaction row(LocalDateTime createdAt) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction tx = new Transaction();
+        tx.setId(UUID.randomUUID());
+        tx.setCreatedAt(createdAt);
+        tx.setCard(cards.get(random.nextInt(CARDS)));
+        tx.setTargetCardId(cards.get(random.nextInt(CARDS)).getId());
+        tx.setExternalId("EXT-" + random.nextLong(1_000_000_000L));
+        tx.setReferenceId(UUID.randomUUID());
+        tx.setAmount(BigDecimal.valueOf(random.nextInt(1, 100_000), 2));
+        tx.setStatus(TransactionStatus.COMPLETED);
+        tx.setDescription("benchmark transfer");
+        tx.setIdempotencyKey(UUID.randomUUID().toString());
+        tx.setBeforeBalance(BigDecimal.valueOf(1_000_000, 2));
+        tx.setAfterBalance(BigDecimal.valueOf(900_000, 2));
+        tx.setType(random.nextBoolean() ? TransactionType.DEBIT : TransactionType.CREDIT);
+        tx.setCurrency(CurrencyType.UZS);
+        return tx;
+    }
+}
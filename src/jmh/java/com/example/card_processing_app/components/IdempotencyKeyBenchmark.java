@@ -0,0 +1,80 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.annotations.Idempotent;
+import com.example.card_processing_app.controllers.TransactionController;
+import com.example.card_processing_app.dto.request.P2PRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.MethodInvocationProceedingJoinPoint;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Key resolution done by IdempotencyAspect before every idempotent call, from the request header as the
+// controllers use it and from a SpEL key expression. Lives in the components package because resolveKey
+// is package-private.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdempotencyKeyBenchmark {
+    private IdempotencyAspect aspect;
+    private MethodInvocationProceedingJoinPoint headerJoinPoint;
+    private MethodInvocationProceedingJoinPoint spelJoinPoint;
+    private Idempotent headerIdempotent;
+    private Idempotent spelIdempotent;
+
+    @Setup
+    public void setUp() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Idempotency-Key", UUID.randomUUID().toString());
+        aspect = new IdempotencyAspect(null, null, request, null, null, null);
+
+        P2PRequest p2p = new P2PRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.TEN, "EXT-1", "lunch");
+        Object[] args = {"header-key", p2p};
+
+        Method executeP2P = TransactionController.class.getMethod("executeP2P", String.class, P2PRequest.class);
+        headerJoinPoint = joinPoint(new TransactionController(null, null), executeP2P, args);
+        headerIdempotent = executeP2P.getAnnotation(Idempotent.class);
+
+        Method keyed = IdempotencyKeyBenchmark.class.getDeclaredMethod("keyedTransfer", String.class, P2PRequest.class);
+        spelJoinPoint = joinPoint(this, keyed, args);
+        spelIdempotent = keyed.getAnnotation(Idempotent.class);
+    }
+
+    @Benchmark
+    public String headerKey() {
+        return aspect.resolveKey(headerJoinPoint, headerIdempotent);
+    }
+
+    @Benchmark
+    public String spelKey() {
+        return aspect.resolveKey(spelJoinPoint, spelIdempotent);
+    }
+
+    @Idempotent(key = "#request.externalId()")
+    void keyedTransfer(String idempotencyKey, P2PRequest request) {
+    }
+
+    private static MethodInvocationProceedingJoinPoint joinPoint(Object target, Method method, Object[] args) {
+        ReflectiveMethodInvocation invocation =
+                new ReflectiveMethodInvocation(target, target, method, args, target.getClass(), List.of()) {
+                };
+        return new MethodInvocationProceedingJoinPoint(invocation);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.dto.TransferCardView;
+import com.example.card_processing_app.dto.TransferQuote;
+import com.example.card_processing_app.dto.request.P2PRequest;
+import com.example.card_processing_app.entities.Card;
+import com.example.card_processing_app.entities.Transaction;
+import com.example.card_processing_app.enums.AccountStatus;
+import com.example.card_processing_app.enums.CardStatus;
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.repositories.CardRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+// CPU side of TransactionService.executeP2P outside the database: quote preparation with the cross-rate math,
+// and the ledger rows built and finalised inside the transfer transaction. Lives in the services package
+// because those steps are package-private.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferHotPathBenchmark {
+    private static final String CBU_RATES = """
+            [{"Code":"840","Ccy":"USD","CcyNm_EN":"US Dollar","Nominal":"1","Rate":"12650.37","Date":"01.10.2025"}]""";
+
+    private CbuService cbuService;
+    private TransactionService transactionService;
+    private TransferExecutionService transferExecutionService;
+
+    private P2PRequest sameCurrencyRequest;
+    private P2PRequest crossCurrencyRequest;
+    private Map<UUID, TransferCardView> cards;
+    private TransferQuote quote;
+    private UUID referenceId;
+    private LocalDateTime now;
+
+    @Setup
+    public void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer.bindTo(restTemplate).build()
+                .expect(requestTo("https://cbu.uz/uz/arkhiv-kursov-valyut/json/"))
+                .andRespond(withSuccess(CBU_RATES, MediaType.APPLICATION_JSON));
+        cbuService = new CbuService(restTemplate);
+        ReflectionTestUtils.setField(cbuService, "maxStalenessMinutes", 360L);
+        cbuService.refreshRates();
+
+        transactionService = new TransactionService(null, null, cbuService, null, null, null, null);
+        transferExecutionService = new TransferExecutionService(cardRepository(), null, null, null, null, null);
+
+        TransferCardView uzsSender = view(CurrencyType.UZS);
+        TransferCardView uzsReceiver = view(CurrencyType.UZS);
+        TransferCardView usdReceiver = view(CurrencyType.USD);
+        cards = Map.of(
+                uzsSender.cardId(), uzsSender,
+                uzsReceiver.cardId(), uzsReceiver,
+                usdReceiver.cardId(), usdReceiver);
+
+        BigDecimal amount = new BigDecimal("1250000.00");
+        sameCurrencyRequest = new P2PRequest(uzsSender.cardId(), uzsReceiver.cardId(), amount, "EXT-1", "lunch");
+        crossCurrencyRequest = new P2PRequest(uzsSender.cardId(), usdReceiver.cardId(), amount, "EXT-2", "lunch");
+
+        quote = transactionService.toQuote(crossCurrencyRequest, cards, "bench-key");
+        referenceId = UUID.randomUUID();
+        now = LocalDateTime.now();
+    }
+
+    @Benchmark
+    public BigDecimal exchangeRate() {
+        return cbuService.getExchangeRate(CurrencyType.UZS, CurrencyType.USD);
+    }
+
+    @Benchmark
+    public TransferQuote sameCurrencyQuote() {
+        return transactionService.toQuote(sameCurrencyRequest, cards, "bench-key");
+    }
+
+    @Benchmark
+    public TransferQuote crossCurrencyQuote() {
+        return transactionService.toQuote(crossCurrencyRequest, cards, "bench-key");
+    }
+
+    @Benchmark
+    public List<Transaction> prepareInitialTransactions() {
+        return transferExecutionService.prepareInitialTransactions(quote, referenceId, now);
+    }
+
+    @Benchmark
+    public List<Transaction> prepareAndFinalizeTransactions() {
+        List<Transaction> transactions = transferExecutionService.prepareInitialTransactions(quote, referenceId, now);
+        transferExecutionService.finalizeTransactionBalances(transactions,
+                new BigDecimal("5000000.00"), new BigDecimal("120.00"), quote.senderAmount(), quote.receiverAmount());
+        return transactions;
+    }
+
+    private TransferCardView view(CurrencyType currency) {
+        return new TransferCardView(UUID.randomUUID(), UUID.randomUUID(), currency, CardStatus.ACTIVE, AccountStatus.ACTIVE);
+    }
+
+    // stands in for the Hibernate reference proxy: only getReferenceById is called on this path
+    private CardRepository cardRepository() {
+        return (CardRepository) Proxy.newProxyInstance(
+                CardRepository.class.getClassLoader(),
+                new Class<?>[]{CardRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("getReferenceById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Card card = new Card();
+                    card.setId((UUID) args[0]);
+                    return card;
+                });
+    }
+}
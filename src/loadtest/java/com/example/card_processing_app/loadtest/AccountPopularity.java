@@ -0,0 +1,29 @@
+package com.example.card_processing_app.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// how transfer pairs are drawn from the seeded users
+enum AccountPopularity {
+    // every user equally likely on both sides
+    UNIFORM,
+    // uniform senders, receivers ranked by a Zipf law so a few accounts take most of the credits
+    ZIPF,
+    // a user's card to a second card on the same account, the internal transfer path
+    INTERNAL;
+
+    int sender(int users) {
+        return ThreadLocalRandom.current().nextInt(users);
+    }
+
+    int receiver(int sender, int users, ZipfSampler zipf) {
+        int receiver = switch (this) {
+            case UNIFORM -> ThreadLocalRandom.current().nextInt(users);
+            case ZIPF -> zipf.sample();
+            case INTERNAL -> sender;
+        };
+        if (receiver == sender && this != INTERNAL) {
+            receiver = (receiver + 1) % users;
+        }
+        return receiver;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.card_processing_app.loadtest;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// key=value arguments, the defaults match the services of docker-compose.yml
+record LoadTestConfig(
+        URI baseUrl,
+        String jdbcUrl,
+        String dbUser,
+        String dbPassword,
+        int users,
+        int concurrency,
+        Duration warmup,
+        Duration duration,
+        AccountPopularity popularity,
+        double zipfExponent,
+        double replayRate,
+        double crossCurrencyRate,
+        BigDecimal amount,
+        BigDecimal initialBalance
+) {
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestConfig config = new LoadTestConfig(
+                URI.create(values.getOrDefault("baseUrl", "http://localhost:8080")),
+                values.getOrDefault("jdbcUrl", "jdbc:postgresql://localhost:5432/card_processing_db"),
+                values.getOrDefault("dbUser", "postgres"),
+                values.getOrDefault("dbPassword", "pas123"),
+                Integer.parseInt(values.getOrDefault("users", "200")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                Duration.parse(values.getOrDefault("warmup", "PT10S")),
+                Duration.parse(values.getOrDefault("duration", "PT60S")),
+                AccountPopularity.valueOf(values.getOrDefault("popularity", "UNIFORM")),
+                Double.parseDouble(values.getOrDefault("zipfExponent", "1.1")),
+                Double.parseDouble(values.getOrDefault("replayRate", "0.0")),
+                Double.parseDouble(values.getOrDefault("crossCurrencyRate", "0.0")),
+                new BigDecimal(values.getOrDefault("amount", "1.00")),
+                new BigDecimal(values.getOrDefault("initialBalance", "1000000000.00"))
+        );
+        if (config.users() < 2) {
+            throw new IllegalArgumentException("At least two users are needed");
+        }
+        if (config.replayRate() < 0 || config.replayRate() > 1 || config.crossCurrencyRate() < 0 || config.crossCurrencyRate() > 1) {
+            throw new IllegalArgumentException("replayRate and crossCurrencyRate must be between 0 and 1");
+        }
+        return config;
+    }
+}
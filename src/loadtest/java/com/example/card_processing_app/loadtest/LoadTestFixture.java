@@ -0,0 +1,117 @@
+package com.example.card_processing_app.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Users and cards are created through the API so they look exactly like production data; balances and the
+// second card of an account (no endpoint creates one) are written straight into the database.
+final class LoadTestFixture {
+    private final LoadTestConfig config;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    record Participant(String token, UUID uzsCard, UUID usdCard, UUID sameAccountCard) {}
+
+    LoadTestFixture(LoadTestConfig config, HttpClient httpClient, ObjectMapper objectMapper) {
+        this.config = config;
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+    }
+
+    List<Participant> create() throws IOException, InterruptedException, SQLException {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        boolean needsUsd = config.crossCurrencyRate() > 0;
+        boolean needsSameAccount = config.popularity() == AccountPopularity.INTERNAL;
+
+        List<Participant> participants = new ArrayList<>(config.users());
+        for (int i = 0; i < config.users(); i++) {
+            String token = register("loadtest-" + runId + "-" + i + "@example.com");
+            UUID uzsCard = createCard(token, "UZS");
+            UUID usdCard = needsUsd ? createCard(token, "USD") : null;
+            participants.add(new Participant(token, uzsCard, usdCard, needsSameAccount ? UUID.randomUUID() : null));
+        }
+
+        try (Connection connection = DriverManager.getConnection(config.jdbcUrl(), config.dbUser(), config.dbPassword())) {
+            fund(connection, participants);
+            if (needsSameAccount) {
+                addSameAccountCards(connection, participants);
+            }
+        }
+        return participants;
+    }
+
+    private String register(String email) throws IOException, InterruptedException {
+        JsonNode body = post("/api/v1/auth/register", null, Map.of("email", email, "password", "loadtest"));
+        return body.get("token").asText();
+    }
+
+    private UUID createCard(String token, String currency) throws IOException, InterruptedException {
+        JsonNode body = post("/api/v1/card/create", token, Map.of("currency", currency));
+        return UUID.fromString(body.get("id").asText());
+    }
+
+    private JsonNode post(String path, String token, Object payload) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(config.baseUrl().resolve(path))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+
+        HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("POST " + path + " failed with " + response.statusCode() + ": " + new String(response.body()));
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private void fund(Connection connection, List<Participant> participants) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE accounts SET balance = ? WHERE id = (SELECT account_id FROM cards WHERE id = ?)")) {
+            for (Participant participant : participants) {
+                addFunding(update, participant.uzsCard(), config.initialBalance());
+                if (participant.usdCard() != null) {
+                    addFunding(update, participant.usdCard(), config.initialBalance());
+                }
+            }
+            update.executeBatch();
+        }
+    }
+
+    private void addFunding(PreparedStatement update, UUID cardId, BigDecimal balance) throws SQLException {
+        update.setBigDecimal(1, balance);
+        update.setObject(2, cardId);
+        update.addBatch();
+    }
+
+    private void addSameAccountCards(Connection connection, List<Participant> participants) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO cards (id, card_number, expiry_date, cvv, currency, card_type, status, account_id, created_at) " +
+                        "SELECT ?, ?, expiry_date, cvv, currency, card_type, status, account_id, now() FROM cards WHERE id = ?")) {
+            for (Participant participant : participants) {
+                insert.setObject(1, participant.sameAccountCard());
+                insert.setString(2, "9" + String.format("%015d", ThreadLocalRandom.current().nextLong(1_000_000_000_000_000L)));
+                insert.setObject(3, participant.uzsCard());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.card_processing_app.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+// Polls PostgreSQL while the load runs: sessions waiting for a lock (pg_locks.waitstart needs PostgreSQL 14+)
+// and the deadlock counter of the database. Lock wait time is estimated as waiting sessions x poll interval.
+final class LockContentionSampler implements AutoCloseable {
+    private static final String WAITING_SQL =
+            "SELECT count(DISTINCT pid), coalesce(max(extract(epoch FROM now() - waitstart)), 0) FROM pg_locks WHERE NOT granted";
+    private static final String DEADLOCKS_SQL =
+            "SELECT deadlocks FROM pg_stat_database WHERE datname = current_database()";
+
+    private final Connection connection;
+    private final Duration interval;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile boolean measuring;
+
+    private long samples;
+    private long waitingTotal;
+    private long peakWaiting;
+    private double longestWaitSeconds;
+    private long deadlocksAtStart;
+
+    LockContentionSampler(LoadTestConfig config, Duration interval) throws SQLException {
+        this.connection = DriverManager.getConnection(config.jdbcUrl(), config.dbUser(), config.dbPassword());
+        this.interval = interval;
+        this.thread = new Thread(this::run, "lock-contention-sampler");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    // called when the warm-up ends so the report only covers the measured window
+    void startMeasuring() throws SQLException {
+        deadlocksAtStart = deadlocks();
+        measuring = true;
+    }
+
+    Result stop() throws SQLException, InterruptedException {
+        running = false;
+        thread.join();
+        // statistics are flushed by the backends with a short delay
+        Thread.sleep(1_000);
+        return result();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (measuring) {
+                    sample();
+                }
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException e) {
+                System.err.println("Lock sampling failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // synchronized with deadlocks(): both share the one connection
+    private synchronized void sample() throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(WAITING_SQL)) {
+            rs.next();
+            long waiting = rs.getLong(1);
+            samples++;
+            waitingTotal += waiting;
+            peakWaiting = Math.max(peakWaiting, waiting);
+            longestWaitSeconds = Math.max(longestWaitSeconds, rs.getDouble(2));
+        }
+    }
+
+    private synchronized long deadlocks() throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(DEADLOCKS_SQL)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private synchronized Result result() throws SQLException {
+        return new Result(
+                samples == 0 ? 0 : (double) waitingTotal / samples,
+                peakWaiting,
+                longestWaitSeconds,
+                Duration.ofMillis(waitingTotal * interval.toMillis()),
+                deadlocks() - deadlocksAtStart
+        );
+    }
+
+    record Result(double averageWaiting, long peakWaiting, double longestWaitSeconds, Duration estimatedWaitTime, long deadlocks) {}
+}
@@ -0,0 +1,207 @@
+package com.example.card_processing_app.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load generator for POST /api/v1/transaction/p2p against a running instance, e.g. the app of
+// docker-compose.yml or a local one on top of its PostgreSQL and Redis. Each of `concurrency` workers sends the
+// next transfer as soon as the previous one answered; only requests finished after the warm-up are reported.
+//
+// mvn -Pload-test test-compile exec:exec -Dload.args="popularity=ZIPF concurrency=64 replayRate=0.05 crossCurrencyRate=0.1"
+//
+// Cross-currency transfers need the CBU rates endpoint to be reachable from the application.
+public final class P2PLoadTest {
+    private static final int REPLAY_WINDOW = 1024;
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final LoadTestConfig config;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI p2pUri;
+
+    private final Timer latency;
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder ioErrors = new LongAdder();
+    private final AtomicReferenceArray<SentTransfer> recent = new AtomicReferenceArray<>(REPLAY_WINDOW);
+
+    private List<LoadTestFixture.Participant> participants;
+    private ZipfSampler zipf;
+    private volatile long measureFromNanos;
+
+    private record SentTransfer(String token, String idempotencyKey, byte[] body) {}
+
+    private P2PLoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.p2pUri = config.baseUrl().resolve("/api/v1/transaction/p2p");
+        this.latency = Timer.builder("loadtest.p2p")
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(3)
+                // one window over the whole run instead of the rolling default
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(new SimpleMeterRegistry());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new P2PLoadTest(LoadTestConfig.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Seeding %d users against %s%n", config.users(), config.baseUrl());
+        participants = new LoadTestFixture(config, httpClient, objectMapper).create();
+        zipf = new ZipfSampler(participants.size(), config.zipfExponent());
+
+        long startNanos = System.nanoTime();
+        measureFromNanos = startNanos + config.warmup().toNanos();
+        long endNanos = measureFromNanos + config.duration().toNanos();
+
+        try (LockContentionSampler sampler = new LockContentionSampler(config, Duration.ofMillis(250))) {
+            sampler.start();
+
+            CountDownLatch done = new CountDownLatch(config.concurrency());
+            for (int i = 0; i < config.concurrency(); i++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        work(endNanos);
+                    } finally {
+                        done.countDown();
+                    }
+                }, "load-worker-" + i);
+                worker.setDaemon(true);
+                worker.start();
+            }
+
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, measureFromNanos - System.nanoTime()));
+            sampler.startMeasuring();
+            done.await();
+
+            report(sampler.stop());
+        }
+    }
+
+    private void work(long endNanos) {
+        while (System.nanoTime() < endNanos) {
+            SentTransfer transfer = nextTransfer();
+
+            HttpRequest request = HttpRequest.newBuilder(p2pUri)
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + transfer.token())
+                    .header("Idempotency-Key", transfer.idempotencyKey())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(transfer.body()))
+                    .build();
+
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                long finished = System.nanoTime();
+                if (finished >= measureFromNanos) {
+                    latency.record(finished - started, TimeUnit.NANOSECONDS);
+                    statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                }
+            } catch (IOException e) {
+                ioErrors.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // a replay resends an earlier transfer with its key, as a client retrying after a timeout would
+    private SentTransfer nextTransfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < config.replayRate()) {
+            SentTransfer previous = recent.get(random.nextInt(REPLAY_WINDOW));
+            if (previous != null) {
+                if (System.nanoTime() >= measureFromNanos) {
+                    replays.increment();
+                }
+                return previous;
+            }
+        }
+
+        int users = participants.size();
+        int senderIndex = config.popularity().sender(users);
+        int receiverIndex = config.popularity().receiver(senderIndex, users, zipf);
+        LoadTestFixture.Participant sender = participants.get(senderIndex);
+        LoadTestFixture.Participant receiver = participants.get(receiverIndex);
+
+        UUID receiverCard;
+        if (config.popularity() == AccountPopularity.INTERNAL) {
+            receiverCard = receiver.sameAccountCard();
+        } else if (receiver.usdCard() != null && random.nextDouble() < config.crossCurrencyRate()) {
+            receiverCard = receiver.usdCard();
+        } else {
+            receiverCard = receiver.uzsCard();
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("senderCardId", sender.uzsCard());
+        body.put("receiverCardId", receiverCard);
+        body.put("amount", config.amount());
+        body.put("externalId", "LT-" + UUID.randomUUID().toString().substring(0, 8));
+        body.put("description", "load test");
+
+        SentTransfer transfer;
+        try {
+            transfer = new SentTransfer(sender.token(), UUID.randomUUID().toString(), objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        recent.set(random.nextInt(REPLAY_WINDOW), transfer);
+        return transfer;
+    }
+
+    private void report(LockContentionSampler.Result locks) {
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+        double seconds = config.duration().toNanos() / 1e9;
+
+        System.out.println();
+        System.out.printf("popularity=%s users=%d concurrency=%d replayRate=%.3f crossCurrencyRate=%.3f%n",
+                config.popularity(), participants.size(), config.concurrency(), config.replayRate(), config.crossCurrencyRate());
+        if (config.popularity() == AccountPopularity.ZIPF) {
+            System.out.printf("zipf exponent %.2f: top 1%% of receivers get %.1f%% of the transfers%n",
+                    config.zipfExponent(), 100 * zipf.topShare(Math.max(1, participants.size() / 100)));
+        }
+        System.out.printf("requests   %d in %.1fs (%d replays, %d I/O errors)%n",
+                snapshot.count(), seconds, replays.sum(), ioErrors.sum());
+        System.out.printf("throughput %.1f req/s%n", snapshot.count() / seconds);
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            System.out.printf("p%-9s %.2f ms%n", BigDecimal.valueOf(percentile.percentile() * 100).stripTrailingZeros().toPlainString(),
+                    percentile.value(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("max        %.2f ms%n", snapshot.max(TimeUnit.MILLISECONDS));
+        System.out.println("statuses   " + new TreeMap<>(statuses));
+        System.out.printf("lock waits avg %.2f / peak %d waiting sessions, longest wait %.3fs, ~%dms waited in total%n",
+                locks.averageWaiting(), locks.peakWaiting(), locks.longestWaitSeconds(), locks.estimatedWaitTime().toMillis());
+        System.out.println("deadlocks  " + locks.deadlocks());
+    }
+}
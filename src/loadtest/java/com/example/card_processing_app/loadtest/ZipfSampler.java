@@ -0,0 +1,31 @@
+package com.example.card_processing_app.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// ranks 0..n-1 with P(k) proportional to 1 / (k + 1)^exponent, sampled by binary search over the cumulative weights
+final class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample() {
+        int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    // share of all draws that land on the first ranks, printed so runs with different exponents can be compared
+    double topShare(int ranks) {
+        return cumulative[Math.min(ranks, cumulative.length) - 1];
+    }
+}
@@ -309,6 +309,24 @@ public class CommonExceptionHandler {
                 .build();
     }
 
+    @ExceptionHandler(AccountLockTimeoutException.class)
+    @ResponseStatus(CONFLICT)
+    FieldErrorResponse handle(AccountLockTimeoutException ex) {
+        return FieldErrorResponse.builder()
+                .message(ex.getMessage())
+                .code("AccountBusy")
+                .build();
+    }
+
+    @ExceptionHandler(AccountDeadlockException.class)
+    @ResponseStatus(CONFLICT)
+    FieldErrorResponse handle(AccountDeadlockException ex) {
+        return FieldErrorResponse.builder()
+                .message(ex.getMessage())
+                .code("AccountDeadlock")
+                .build();
+    }
+
     @ExceptionHandler(IdempotentRequestException.class)
     @ResponseStatus(CONFLICT)
     FieldErrorResponse handle(IdempotentRequestException ex) {
@@ -318,6 +336,15 @@ public class CommonExceptionHandler {
                 .build();
     }
 
+    @ExceptionHandler(TransferOutcomeUnknownException.class)
+    @ResponseStatus(SERVICE_UNAVAILABLE)
+    FieldErrorResponse handle(TransferOutcomeUnknownException ex) {
+        return FieldErrorResponse.builder()
+                .message(ex.getMessage())
+                .code("TransferOutcomeUnknown")
+                .build();
+    }
+
     @ExceptionHandler(TechnicalException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     FieldErrorResponse handle(TechnicalException ex) {
@@ -0,0 +1,91 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.dto.response.ContendedAccountDto;
+import com.example.card_processing_app.enums.AccountLockStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Aggregate lock metrics go to Micrometer; per-account figures would be unbounded tag cardinality, so
+// they are kept in a heavy-hitters sketch of the most contended accounts instead.
+@Component
+public class AccountLockMetrics {
+    private final Timer acquiredTimer;
+    private final Timer timeoutTimer;
+    private final Timer deadlockTimer;
+    private final Counter retries;
+    private final SpaceSavingSketch<UUID, LockEvent> contended;
+    private final long contendedThresholdNanos;
+
+    private enum LockEvent {
+        CONTENDED,
+        TIMEOUT,
+        DEADLOCK,
+        RETRY
+    }
+
+    public AccountLockMetrics(MeterRegistry registry,
+                              @Value("${app.accounts.lock.strategy:TIMEOUT}") AccountLockStrategy strategy,
+                              @Value("${app.accounts.lock.contention.capacity:256}") int capacity,
+                              @Value("${app.accounts.lock.contention.threshold-ms:1}") long thresholdMs) {
+        this.acquiredTimer = waitTimer(registry, strategy, "acquired");
+        this.timeoutTimer = waitTimer(registry, strategy, "timeout");
+        this.deadlockTimer = waitTimer(registry, strategy, "deadlock");
+        this.retries = Counter.builder("account.lock.retries")
+                .description("Account lock attempts repeated after the row or the transfer was busy")
+                .tag("strategy", strategy.name())
+                .register(registry);
+        this.contended = new SpaceSavingSketch<>(capacity, LockEvent.class);
+        this.contendedThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+    }
+
+    // uncontended acquisitions stay out of the sketch, which keeps its synchronized update off the common path
+    public void recordAcquired(UUID accountId, long waitNanos) {
+        acquiredTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        if (waitNanos >= contendedThresholdNanos) {
+            contended.add(accountId, waitNanos, LockEvent.CONTENDED);
+        }
+    }
+
+    public void recordTimeout(UUID accountId, long waitNanos) {
+        timeoutTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        contended.add(accountId, waitNanos, LockEvent.TIMEOUT);
+    }
+
+    public void recordDeadlock(UUID accountId, long waitNanos) {
+        deadlockTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        contended.add(accountId, waitNanos, LockEvent.DEADLOCK);
+    }
+
+    public void recordRetry(UUID accountId) {
+        retries.increment();
+        contended.add(accountId, 0, LockEvent.RETRY);
+    }
+
+    public List<ContendedAccountDto> topContended(int limit) {
+        return contended.top(limit).stream()
+                .map(entry -> new ContendedAccountDto(
+                        entry.key(),
+                        entry.weight() / 1e6,
+                        entry.error() / 1e6,
+                        entry.count(LockEvent.CONTENDED),
+                        entry.count(LockEvent.TIMEOUT),
+                        entry.count(LockEvent.DEADLOCK),
+                        entry.count(LockEvent.RETRY)))
+                .toList();
+    }
+
+    private Timer waitTimer(MeterRegistry registry, AccountLockStrategy strategy, String outcome) {
+        return Timer.builder("account.lock.wait")
+                .description("Time spent acquiring an account row lock")
+                .tags("strategy", strategy.name(), "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
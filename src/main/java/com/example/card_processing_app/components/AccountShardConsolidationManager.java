@@ -0,0 +1,27 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.services.AccountShardService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class AccountShardConsolidationManager {
+    private final AccountShardService accountShardService;
+
+    @Scheduled(fixedDelayString = "${app.accounts.hot.consolidation-interval-ms:5000}")
+    public void consolidateHotAccounts() {
+        for (UUID accountId : accountShardService.findHotAccountIds()) {
+            try {
+                accountShardService.consolidate(accountId);
+            } catch (Exception e) {
+                log.error("Error consolidating shards of account: {}", accountId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.dto.response.ContendedAccountDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// GET /actuator/contendedaccounts?limit=20
+@Component
+@Endpoint(id = "contendedaccounts")
+@RequiredArgsConstructor
+public class ContendedAccountsEndpoint {
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final AccountLockMetrics accountLockMetrics;
+
+    @ReadOperation
+    public List<ContendedAccountDto> contendedAccounts(@Nullable Integer limit) {
+        return accountLockMetrics.topContended(limit == null || limit < 1 ? DEFAULT_LIMIT : limit);
+    }
+}
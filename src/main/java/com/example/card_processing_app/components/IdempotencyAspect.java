@@ -3,7 +3,9 @@ package com.example.card_processing_app.components;
 import com.example.card_processing_app.annotations.Idempotent;
 import com.example.card_processing_app.dto.IdempotencyResult;
 import com.example.card_processing_app.enums.IdempotencyStatus;
+import com.example.card_processing_app.enums.TransferStage;
 import com.example.card_processing_app.exception.IdempotentRequestException;
+import com.example.card_processing_app.exception.TransferOutcomeUnknownException;
 import com.example.card_processing_app.services.IdempotencyKeyService;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,6 +26,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Aspect
 @Component
 @RequiredArgsConstructor
@@ -33,22 +40,52 @@ public class IdempotencyAspect {
     private final IdempotencyKeyService idempotencyKeyService;
     private final ObjectMapper objectMapper;
     private final HttpServletRequest httpRequest;
+    private final IdempotencyNearCache nearCache;
+    private final IdempotencyPayloadSerializer payloadSerializer;
+    private final TransferMetrics transferMetrics;
 
     private final ExpressionParser parser = new SpelExpressionParser();
     private final ParameterNameDiscoverer discoverer = new DefaultParameterNameDiscoverer();
+    private final Map<Method, JavaType> bodyTypes = new ConcurrentHashMap<>();
 
+    // the trace collects the stage timings of a transfer executed under this call, including both Redis round trips
     @Around("@annotation(idempotent)")
     public Object handleIdempotency(ProceedingJoinPoint joinPoint, Idempotent idempotent) throws Throwable {
+        TransferTrace trace = TransferTrace.begin();
+        Throwable failure = null;
+        try {
+            return proceedIdempotently(joinPoint, idempotent, trace);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            trace.end();
+            transferMetrics.record(trace, failure);
+        }
+    }
+
+    private Object proceedIdempotently(ProceedingJoinPoint joinPoint, Idempotent idempotent, TransferTrace trace) throws Throwable {
         String key = resolveKey(joinPoint, idempotent);
 
-        IdempotencyResult result = idempotencyKeyService.checkAndLock(key);
+        Optional<IdempotencyNearCache.CachedResponse> local;
+        IdempotencyResult result;
+        try (TransferTrace.Stage ignored = trace.enter(TransferStage.IDEMPOTENCY_CHECK)) {
+            local = nearCache.get(key);
+            result = local.isPresent() ? null : idempotencyKeyService.checkAndLock(key);
+        }
+
+        if (local.isPresent()) {
+            return toReplayResponse(joinPoint, local.get().body());
+        }
 
         if (result.status() == IdempotencyStatus.PROCESSING) {
             throw new IdempotentRequestException("Request is currently being processed by another thread");
         }
 
         if (result.status() == IdempotencyStatus.COMPLETED) {
-            return deserializeResponse(joinPoint, result.cachedValue());
+            Object body = deserializeBody(joinPoint, result.cachedValue());
+            nearCache.put(key, body);
+            return toReplayResponse(joinPoint, body);
         }
 
         try {
@@ -62,20 +99,41 @@ public class IdempotencyAspect {
                 TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                     @Override
                     public void afterCommit() {
-                        idempotencyKeyService.markAsComplete(key, bodyToCache);
+                        markAsComplete(key, bodyToCache);
                     }
                 });
             } else {
-                idempotencyKeyService.markAsComplete(key, bodyToCache);
+                try (TransferTrace.Stage ignored = trace.enter(TransferStage.IDEMPOTENCY_COMPLETE)) {
+                    markAsComplete(key, bodyToCache);
+                }
             }
             return response;
+        } catch (TransferOutcomeUnknownException e) {
+            settleLater(key, e);
+            throw e;
         } catch (Exception e) {
             idempotencyKeyService.deleteKey(key);
             throw e;
         }
     }
 
-    private String resolveKey(ProceedingJoinPoint joinPoint, Idempotent idempotent) {
+    // the key stays PROCESSING until the commit settles, so a retry in between is rejected instead of executed
+    // twice; only thrown by calls whose response has no body, hence nothing to cache but completion
+    private void settleLater(String key, TransferOutcomeUnknownException unknown) {
+        unknown.getSettlement().whenComplete((outcome, failure) -> {
+            try {
+                if (failure == null) {
+                    markAsComplete(key, null);
+                } else {
+                    idempotencyKeyService.deleteKey(key);
+                }
+            } catch (RuntimeException e) {
+                log.error("Settling idempotency key {} failed, it expires with the lock TTL", key, e);
+            }
+        });
+    }
+
+    String resolveKey(ProceedingJoinPoint joinPoint, Idempotent idempotent) {
         String rawKey;
 
         if (!idempotent.key().isBlank()) {
@@ -97,27 +155,39 @@ public class IdempotencyAspect {
         return String.format("%s:%s:%s", className, methodName, rawKey);
     }
 
-    private Object deserializeResponse(ProceedingJoinPoint joinPoint, String cachedValue) throws Exception {
+    private void markAsComplete(String key, Object body) {
+        idempotencyKeyService.markAsComplete(key, body);
+        nearCache.put(key, body);
+    }
+
+    private Object deserializeBody(ProceedingJoinPoint joinPoint, byte[] cachedValue) throws Exception {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        Class<?> returnType = signature.getReturnType();
 
-        if (returnType.equals(Void.TYPE) || cachedValue == null) {
+        if (signature.getReturnType().equals(Void.TYPE) || cachedValue == null) {
             return null;
         }
 
-        JavaType type = objectMapper.getTypeFactory().constructType(signature.getMethod().getGenericReturnType());
+        return payloadSerializer.deserialize(cachedValue, bodyTypes.computeIfAbsent(signature.getMethod(), this::resolveBodyType));
+    }
 
-        if (org.springframework.http.ResponseEntity.class.isAssignableFrom(returnType)) {
+    private JavaType resolveBodyType(Method method) {
+        JavaType type = objectMapper.getTypeFactory().constructType(method.getGenericReturnType());
+
+        if (org.springframework.http.ResponseEntity.class.isAssignableFrom(method.getReturnType())) {
             type = type.getBindings().getTypeParameters().get(0);
         }
 
-        Object decodedBody = objectMapper.readValue(cachedValue, type);
+        return type;
+    }
+
+    private Object toReplayResponse(ProceedingJoinPoint joinPoint, Object body) {
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
 
         if (org.springframework.http.ResponseEntity.class.isAssignableFrom(returnType)) {
-            return org.springframework.http.ResponseEntity.status(201).body(decodedBody);
+            return org.springframework.http.ResponseEntity.status(201).body(body);
         }
 
-        return decodedBody;
+        return body;
     }
     private String parseSpelKey(ProceedingJoinPoint joinPoint, String expressionStr) {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
@@ -0,0 +1,46 @@
+package com.example.card_processing_app.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// In-process cache of COMPLETED idempotency results, consulted before Redis so retry storms are absorbed locally.
+// Completed results never change, so a stale entry on one instance cannot disagree with Redis.
+@Component
+public class IdempotencyNearCache {
+    private final Cache<String, CachedResponse> cache;
+
+    public IdempotencyNearCache(
+            MeterRegistry registry,
+            @Value("${app.idempotency.near-cache.max-size:10000}") long maxSize,
+            @Value("${app.idempotency.near-cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "idempotency.near");
+    }
+
+    public Optional<CachedResponse> get(String key) {
+        return Optional.ofNullable(cache.getIfPresent(key));
+    }
+
+    public void put(String key, Object body) {
+        cache.put(key, new CachedResponse(body));
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    // wrapper so that void and empty-body responses can be cached as well
+    public record CachedResponse(Object body) {}
+}
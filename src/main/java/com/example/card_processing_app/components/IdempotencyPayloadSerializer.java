@@ -0,0 +1,118 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.enums.IdempotencyCodecType;
+import com.fasterxml.jackson.databind.JavaType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Stored layout: one header byte (codec id, high bit set when gzipped) followed by the encoded body.
+// Values without a known header are plain JSON written before the header was introduced.
+@Component
+public class IdempotencyPayloadSerializer {
+    private static final int COMPRESSED_FLAG = 0x80;
+
+    private final Map<IdempotencyCodecType, IdempotencyResponseCodec> codecs = new EnumMap<>(IdempotencyCodecType.class);
+    private final IdempotencyResponseCodec writer;
+    private final int compressionThreshold;
+    private final DistributionSummary storedBytes;
+    private final DistributionSummary compressedStoredBytes;
+    private final DistributionSummary encodedBytes;
+
+    public IdempotencyPayloadSerializer(
+            List<IdempotencyResponseCodec> codecs,
+            MeterRegistry registry,
+            @Value("${app.idempotency.codec:SMILE}") IdempotencyCodecType codecType,
+            @Value("${app.idempotency.compression-threshold-bytes:1024}") int compressionThreshold
+    ) {
+        codecs.forEach(codec -> this.codecs.put(codec.type(), codec));
+        this.writer = this.codecs.get(codecType);
+        if (writer == null) {
+            throw new IllegalStateException("No idempotency codec registered for " + codecType);
+        }
+        this.compressionThreshold = compressionThreshold;
+
+        this.storedBytes = storedBytesSummary(registry, codecType, false);
+        this.compressedStoredBytes = storedBytesSummary(registry, codecType, true);
+        this.encodedBytes = DistributionSummary.builder("idempotency.response.encoded.bytes")
+                .description("Size of encoded idempotent responses before compression")
+                .baseUnit("bytes")
+                .tag("codec", codecType.name())
+                .register(registry);
+    }
+
+    public byte[] serialize(Object body) throws IOException {
+        byte[] encoded = writer.encode(body);
+        encodedBytes.record(encoded.length);
+
+        if (encoded.length >= compressionThreshold) {
+            byte[] compressed = gzip(encoded);
+            if (compressed.length < encoded.length) {
+                compressedStoredBytes.record(compressed.length + 1);
+                return withHeader(writer.type().getId() | COMPRESSED_FLAG, compressed);
+            }
+        }
+
+        storedBytes.record(encoded.length + 1);
+        return withHeader(writer.type().getId(), encoded);
+    }
+
+    public Object deserialize(byte[] data, JavaType type) throws IOException {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+
+        int header = data[0] & 0xFF;
+        IdempotencyResponseCodec codec = codecs.get(IdempotencyCodecType.fromId((byte) (header & ~COMPRESSED_FLAG)));
+        if (codec == null) {
+            return codecs.get(IdempotencyCodecType.JSON).decode(data, 0, data.length, type);
+        }
+
+        if ((header & COMPRESSED_FLAG) != 0) {
+            byte[] plain = gunzip(data);
+            return codec.decode(plain, 0, plain.length, type);
+        }
+        return codec.decode(data, 1, data.length - 1, type);
+    }
+
+    private DistributionSummary storedBytesSummary(MeterRegistry registry, IdempotencyCodecType codecType, boolean compressed) {
+        return DistributionSummary.builder("idempotency.response.stored.bytes")
+                .description("Size of idempotent responses as stored in Redis")
+                .baseUnit("bytes")
+                .tag("codec", codecType.name())
+                .tag("compressed", String.valueOf(compressed))
+                .register(registry);
+    }
+
+    private byte[] withHeader(int header, byte[] payload) {
+        byte[] result = new byte[payload.length + 1];
+        result[0] = (byte) header;
+        System.arraycopy(payload, 0, result, 1, payload.length);
+        return result;
+    }
+
+    private byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.enums.IdempotencyCodecType;
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.io.IOException;
+
+public interface IdempotencyResponseCodec {
+    IdempotencyCodecType type();
+
+    byte[] encode(Object body) throws IOException;
+
+    Object decode(byte[] data, int offset, int length, JavaType type) throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.enums.IdempotencyCodecType;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class JsonIdempotencyResponseCodec implements IdempotencyResponseCodec {
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public IdempotencyCodecType type() {
+        return IdempotencyCodecType.JSON;
+    }
+
+    @Override
+    public byte[] encode(Object body) throws IOException {
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    @Override
+    public Object decode(byte[] data, int offset, int length, JavaType type) throws IOException {
+        return objectMapper.readValue(data, offset, length, type);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.enums.IdempotencyCodecType;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Binary JSON: same data model as the JSON codec (and the same modules/settings), field names and
+// small numbers are encoded compactly and repeated names are back-referenced
+@Component
+public class SmileIdempotencyResponseCodec implements IdempotencyResponseCodec {
+    private final ObjectMapper smileMapper;
+
+    public SmileIdempotencyResponseCodec(ObjectMapper objectMapper) {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .build();
+        this.smileMapper = objectMapper.copyWith(factory);
+    }
+
+    @Override
+    public IdempotencyCodecType type() {
+        return IdempotencyCodecType.SMILE;
+    }
+
+    @Override
+    public byte[] encode(Object body) throws IOException {
+        return smileMapper.writeValueAsBytes(body);
+    }
+
+    @Override
+    public Object decode(byte[] data, int offset, int length, JavaType type) throws IOException {
+        return smileMapper.readValue(data, offset, length, type);
+    }
+}
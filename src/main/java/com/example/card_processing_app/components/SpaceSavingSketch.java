@@ -0,0 +1,92 @@
+package com.example.card_processing_app.components;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Weighted Space-Saving heavy hitters: at most `capacity` keys are tracked. A new key replaces the lightest
+// one and inherits its weight as error, so a reported weight overestimates by at most `error`, and any key
+// heavier than total / capacity is guaranteed to be present. Event counts start at zero on replacement.
+public class SpaceSavingSketch<K, E extends Enum<E>> {
+    private final int capacity;
+    private final int eventTypes;
+    private final Map<K, Entry<K>> entries;
+
+    public SpaceSavingSketch(int capacity, Class<E> eventType) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.eventTypes = eventType.getEnumConstants().length;
+        this.entries = new HashMap<>(capacity * 2);
+    }
+
+    public synchronized void add(K key, long weight, E event) {
+        Entry<K> entry = entries.get(key);
+        if (entry == null) {
+            entry = admit(key);
+        }
+        entry.weight += weight;
+        entry.counts[event.ordinal()]++;
+    }
+
+    public synchronized List<Entry<K>> top(int limit) {
+        return entries.values().stream()
+                .sorted(Comparator.comparingLong((Entry<K> e) -> e.weight).reversed())
+                .limit(limit)
+                .map(Entry::copy)
+                .toList();
+    }
+
+    private Entry<K> admit(K key) {
+        Entry<K> entry = new Entry<>(key, 0, 0, new long[eventTypes]);
+        if (entries.size() >= capacity) {
+            Entry<K> lightest = null;
+            for (Entry<K> candidate : entries.values()) {
+                if (lightest == null || candidate.weight < lightest.weight) {
+                    lightest = candidate;
+                }
+            }
+            entries.remove(lightest.key);
+            entry.weight = lightest.weight;
+            entry.error = lightest.weight;
+        }
+        entries.put(key, entry);
+        return entry;
+    }
+
+    public static final class Entry<K> {
+        private final K key;
+        private long weight;
+        private long error;
+        private final long[] counts;
+
+        private Entry(K key, long weight, long error, long[] counts) {
+            this.key = key;
+            this.weight = weight;
+            this.error = error;
+            this.counts = counts;
+        }
+
+        public K key() {
+            return key;
+        }
+
+        public long weight() {
+            return weight;
+        }
+
+        public long error() {
+            return error;
+        }
+
+        public long count(Enum<?> event) {
+            return counts[event.ordinal()];
+        }
+
+        private Entry<K> copy() {
+            return new Entry<>(key, weight, error, counts.clone());
+        }
+    }
+}
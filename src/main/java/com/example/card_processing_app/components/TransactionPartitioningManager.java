@@ -1,27 +1,88 @@
 package com.example.card_processing_app.components;
 
+import com.example.card_processing_app.dto.TransactionPartition;
+import com.example.card_processing_app.services.AccountStatementService;
 import com.example.card_processing_app.services.TransactionPartitioningService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+@Log4j2
 @Component
 @RequiredArgsConstructor
 public class TransactionPartitioningManager {
     private final TransactionPartitioningService transactionPartitioningService;
+    private final AccountStatementService accountStatementService;
 
     @EventListener(ApplicationReadyEvent.class)
     public void onStart() {
         transactionPartitioningService.createPartitionIfNotExist(LocalDateTime.now());
-        transactionPartitioningService.createNextMonthPartitionIfNotExist();
+        migrateFuturePartitions();
+        transactionPartitioningService.ensureFutureHorizon();
+        drainDefaultPartition();
     }
 
     @Scheduled(cron = "0 0 5 * * *")
     public void dailyMaintenance() {
-        transactionPartitioningService.createNextMonthPartitionIfNotExist();
+        migrateFuturePartitions();
+        transactionPartitioningService.ensureFutureHorizon();
+        drainDefaultPartition();
+        snapshotDailyBalances();
+        archiveExpiredPartitions();
+    }
+
+    // after a granularity change the empty partitions created ahead are replaced before the horizon is extended
+    private void migrateFuturePartitions() {
+        try {
+            for (TransactionPartition partition : transactionPartitioningService.findMisalignedFuturePartitions()) {
+                transactionPartitioningService.dropIfEmpty(partition);
+            }
+        } catch (Exception e) {
+            log.error("Replacing partitions of a previous granularity failed", e);
+        }
+    }
+
+    private void drainDefaultPartition() {
+        try {
+            for (LocalDateTime period : transactionPartitioningService.findPeriodsInDefaultPartition()) {
+                transactionPartitioningService.moveOutOfDefaultPartition(period);
+            }
+        } catch (Exception e) {
+            log.error("Moving rows out of the default partition failed", e);
+        }
+    }
+
+    // catches up day by day, one transaction per day, so an interrupted run resumes where it stopped
+    private void snapshotDailyBalances() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        try {
+            for (LocalDate day = accountStatementService.nextPendingSnapshotDay().orElse(null);
+                 day != null && !day.isAfter(yesterday);
+                 day = day.plusDays(1)) {
+                accountStatementService.snapshotDay(day);
+            }
+        } catch (Exception e) {
+            log.error("Daily balance snapshot failed", e);
+        }
+    }
+
+    // statements are served from the daily snapshots, so only days already snapshotted may leave the hot table
+    private void archiveExpiredPartitions() {
+        LocalDateTime snapshotted = accountStatementService.nextPendingSnapshotDay()
+                .map(LocalDate::atStartOfDay)
+                .orElse(LocalDateTime.now());
+        try {
+            for (TransactionPartition partition : transactionPartitioningService.findExpiredPartitions(snapshotted)) {
+                transactionPartitioningService.archivePartition(partition);
+            }
+        } catch (Exception e) {
+            log.error("Archiving expired partitions failed", e);
+        }
     }
 }
@@ -0,0 +1,124 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.enums.TransferStage;
+import com.example.card_processing_app.exception.AccountDeadlockException;
+import com.example.card_processing_app.exception.AccountLockTimeoutException;
+import com.example.card_processing_app.exception.CardNotActiveException;
+import com.example.card_processing_app.exception.InsufficientFundsException;
+import com.example.card_processing_app.exception.InvalidCurrencyTypeException;
+import com.example.card_processing_app.exception.RecordNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class TransferMetrics {
+    private final MeterRegistry registry;
+    private final Timer preflightTimer;
+    private final Timer transactionHoldTimer;
+    private final DistributionSummary pipelineBatchSize;
+    private final DistributionSummary pipelineQueueDepth;
+    private final Counter successTransactions;
+
+    public TransferMetrics(MeterRegistry registry, Counter successTransactions) {
+        this.registry = registry;
+        this.successTransactions = successTransactions;
+        // the sum of both timers is what a transfer used to hold its single transaction for
+        this.preflightTimer = Timer.builder("transfer.preflight")
+                .description("Card lookup, status checks and rate quote, executed outside the DB transaction")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.transactionHoldTimer = Timer.builder("transfer.transaction.hold")
+                .description("Time the transfer write transaction is held, from begin to commit")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.pipelineBatchSize = DistributionSummary.builder("transfer.pipeline.batch.size")
+                .description("Transfers committed together by one pipeline group commit")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.pipelineQueueDepth = DistributionSummary.builder("transfer.pipeline.queue.depth")
+                .description("Transfers waiting for the pipeline writer when it starts a drain")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void recordPipelineQueueDepth(int depth) {
+        pipelineQueueDepth.record(depth);
+    }
+
+    public void recordPipelineBatch(int size) {
+        pipelineBatchSize.record(size);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start();
+    }
+
+    public void recordPreflight(Timer.Sample sample) {
+        sample.stop(preflightTimer);
+    }
+
+    public void recordTransactionHold(Timer.Sample sample) {
+        sample.stop(transactionHoldTimer);
+    }
+
+    // one timer sample per stage the transfer went through, all tagged with the same pair, path and outcome
+    public void record(TransferTrace trace, Throwable failure) {
+        if (!trace.isTransfer()) {
+            return;
+        }
+        String outcome = outcome(failure);
+        Tags tags = Tags.of("pair", trace.pair(), "path", trace.path(), "outcome", outcome);
+
+        for (TransferStage stage : TransferStage.values()) {
+            if (trace.wasEntered(stage)) {
+                Timer.builder("transfer.stage")
+                        .description("Time a P2P transfer spent in one stage, excluding nested stages")
+                        .tags(tags)
+                        .tag("stage", stage.getTag())
+                        .publishPercentileHistogram()
+                        .register(registry)
+                        .record(trace.nanos(stage), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        Counter.builder("transfer.outcomes")
+                .description("P2P transfers by currency pair, path and outcome")
+                .tags(tags)
+                .register(registry)
+                .increment();
+        if (failure == null) {
+            successTransactions.increment();
+        }
+    }
+
+    public void recordBatchCompleted(int completed) {
+        successTransactions.increment(completed);
+    }
+
+    private String outcome(Throwable failure) {
+        if (failure == null) {
+            return "success";
+        }
+        if (failure instanceof InsufficientFundsException) {
+            return "insufficient_funds";
+        }
+        if (failure instanceof AccountLockTimeoutException) {
+            return "lock_timeout";
+        }
+        if (failure instanceof AccountDeadlockException) {
+            return "deadlock";
+        }
+        if (failure instanceof CardNotActiveException || failure instanceof RecordNotFoundException
+                || failure instanceof InvalidCurrencyTypeException || failure instanceof AccessDeniedException) {
+            return "rejected";
+        }
+        return "error";
+    }
+}
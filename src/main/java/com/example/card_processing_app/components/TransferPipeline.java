@@ -0,0 +1,220 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.dto.TransferOutcome;
+import com.example.card_processing_app.dto.TransferQuote;
+import com.example.card_processing_app.enums.TransactionStatus;
+import com.example.card_processing_app.enums.TransferExecutionMode;
+import com.example.card_processing_app.exception.InsufficientFundsException;
+import com.example.card_processing_app.exception.TechnicalException;
+import com.example.card_processing_app.exception.TransferOutcomeUnknownException;
+import com.example.card_processing_app.services.TransferExecutionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Optional group commit for single transfers: callers enqueue a validated quote and one writer thread
+// drains up to max-batch-size quotes (or waits at most max-wait-micros) into a single DB transaction.
+// The group is applied the way execute applies one transfer in LOCKING mode: a transfer without funds fails
+// on its own and writes no ledger rows. ATOMIC mode has no batch form, so the two cannot be combined.
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class TransferPipeline {
+    private final TransferExecutionService transferExecutionService;
+    private final TransferMetrics transferMetrics;
+
+    @Value("${app.transfer.pipeline.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.transfer.execution-mode:LOCKING}")
+    private TransferExecutionMode executionMode;
+
+    @Value("${app.transfer.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.transfer.pipeline.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${app.transfer.pipeline.max-wait-micros:500}")
+    private long maxWaitMicros;
+
+    @Value("${app.transfer.pipeline.enqueue-timeout-ms:100}")
+    private long enqueueTimeoutMs;
+
+    @Value("${app.transfer.pipeline.await-timeout-ms:5000}")
+    private long awaitTimeoutMs;
+
+    private BlockingQueue<PendingTransfer> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (executionMode == TransferExecutionMode.ATOMIC) {
+            throw new IllegalStateException("app.transfer.pipeline.enabled requires app.transfer.execution-mode LOCKING");
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        running = true;
+        writer = new Thread(this::drainLoop, "transfer-pipeline-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Transfer pipeline started: batch size {}, max wait {}us", maxBatchSize, maxWaitMicros);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Waits at most await-timeout-ms. A transfer still queued by then is withdrawn and fails, nothing was written.
+    // One the writer already took may still commit: TransferOutcomeUnknownException hands its future to the caller
+    // so the idempotency key is settled when the commit finishes instead of being released for a duplicate.
+    public TransferOutcome execute(TransferQuote quote) {
+        PendingTransfer pending = submit(quote);
+        try {
+            return pending.result().get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new TechnicalException("Transfer failed: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                throw new TechnicalException("Transfer pipeline is saturated, try again later");
+            }
+            throw new TransferOutcomeUnknownException("Transfer is still being committed, retry with the same key", pending.result());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (queue.remove(pending)) {
+                throw new TechnicalException("Interrupted while waiting for transfer");
+            }
+            throw new TransferOutcomeUnknownException("Interrupted while the transfer was being committed", pending.result());
+        }
+    }
+
+    private PendingTransfer submit(TransferQuote quote) {
+        PendingTransfer pending = new PendingTransfer(quote, new CompletableFuture<>());
+        try {
+            if (!running) {
+                throw new TechnicalException("Transfer pipeline is not running");
+            }
+            if (!queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new TechnicalException("Transfer pipeline is saturated, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TechnicalException("Interrupted while enqueueing transfer");
+        }
+        // the writer may have stopped while this was enqueued; whatever it did not drain is withdrawn here
+        if (!running && queue.remove(pending)) {
+            throw new TechnicalException("Transfer pipeline is not running");
+        }
+        return pending;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void drainLoop() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    PendingTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    transferMetrics.recordPipelineQueueDepth(queue.size() + 1);
+
+                    long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+                    while (batch.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        PendingTransfer next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+
+                    commit(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Throwable e) {
+                    log.error("Transfer pipeline writer error", e);
+                    batch.forEach(pending -> pending.result().completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                }
+            }
+        } finally {
+            // no future is left behind: submit stops accepting and whatever is still queued never ran
+            running = false;
+            TechnicalException stopped = new TechnicalException("Transfer pipeline stopped");
+            for (PendingTransfer pending = queue.poll(); pending != null; pending = queue.poll()) {
+                pending.result().completeExceptionally(stopped);
+            }
+            log.info("Transfer pipeline writer stopped");
+        }
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        transferMetrics.recordPipelineBatch(batch.size());
+
+        List<TransferQuote> quotes = batch.stream().map(PendingTransfer::quote).toList();
+        List<TransferOutcome> outcomes;
+        try {
+            outcomes = transferExecutionService.executeGroup(quotes);
+        } catch (Exception e) {
+            // one bad quote must not fail its neighbours: fall back to a transaction per transfer
+            log.warn("Group commit of {} transfers failed, retrying one by one", batch.size(), e);
+            batch.forEach(this::commitAlone);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), outcomes.get(i));
+        }
+    }
+
+    private void commitAlone(PendingTransfer pending) {
+        try {
+            complete(pending, transferExecutionService.executeGroup(List.of(pending.quote())).get(0));
+        } catch (Exception e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private void complete(PendingTransfer pending, TransferOutcome outcome) {
+        if (outcome.status() == TransactionStatus.COMPLETED) {
+            pending.result().complete(outcome);
+        } else {
+            pending.result().completeExceptionally(new InsufficientFundsException(outcome.failureReason()));
+        }
+    }
+
+    private record PendingTransfer(TransferQuote quote, CompletableFuture<TransferOutcome> result) {}
+}
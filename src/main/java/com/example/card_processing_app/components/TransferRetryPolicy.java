@@ -0,0 +1,139 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.enums.TransferStage;
+import com.example.card_processing_app.exception.AccountDeadlockException;
+import com.example.card_processing_app.exception.AccountLockTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Re-runs a transfer transaction that PostgreSQL aborted on a lock timeout, deadlock or serialization failure.
+// The callable must open its own transaction, so every attempt starts from a clean one. Backoff uses full
+// jitter so transfers that collided do not collide again in lockstep, and retries draw from a budget refilled
+// by a fraction of the first attempts: when most transfers fail, retrying stops instead of multiplying load.
+@Log4j2
+@Component
+public class TransferRetryPolicy {
+    private static final long TOKEN = 1_000;
+
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long depositPerAttempt;
+    private final long maxBudget;
+    private final AtomicLong budget;
+    private final MeterRegistry registry;
+    private final Counter budgetExhausted;
+    private final Counter attemptsExhausted;
+
+    public TransferRetryPolicy(MeterRegistry registry,
+                               @Value("${app.transfer.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${app.transfer.retry.initial-backoff-ms:10}") long initialBackoffMs,
+                               @Value("${app.transfer.retry.max-backoff-ms:200}") long maxBackoffMs,
+                               @Value("${app.transfer.retry.budget.ratio:0.2}") double budgetRatio,
+                               @Value("${app.transfer.retry.budget.max-tokens:100}") int budgetMaxTokens) {
+        this.registry = registry;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.depositPerAttempt = Math.round(budgetRatio * TOKEN);
+        this.maxBudget = budgetMaxTokens * TOKEN;
+        this.budget = new AtomicLong(maxBudget);
+
+        Gauge.builder("transfer.retry.budget", budget, tokens -> (double) tokens.get() / TOKEN)
+                .description("Retries the transfer retry budget still allows")
+                .register(registry);
+        this.budgetExhausted = exhausted("budget");
+        this.attemptsExhausted = exhausted("attempts");
+    }
+
+    public void run(Runnable transaction) {
+        execute(() -> {
+            transaction.run();
+            return null;
+        });
+    }
+
+    public <T> T execute(Supplier<T> transaction) {
+        deposit();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.get();
+            } catch (RuntimeException e) {
+                String cause = transientCause(e);
+                if (cause == null) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    attemptsExhausted.increment();
+                    throw e;
+                }
+                if (!withdraw()) {
+                    budgetExhausted.increment();
+                    throw e;
+                }
+                registry.counter("transfer.retries", "cause", cause).increment();
+                log.debug("Transfer attempt {} failed on {}, retrying", attempt, cause);
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private String transientCause(RuntimeException e) {
+        if (e instanceof AccountLockTimeoutException) {
+            return "lock_timeout";
+        }
+        if (e instanceof AccountDeadlockException) {
+            return "deadlock";
+        }
+        if (e instanceof ConcurrencyFailureException) {
+            return "concurrency_failure";
+        }
+        return null;
+    }
+
+    private void deposit() {
+        budget.accumulateAndGet(depositPerAttempt, (tokens, deposit) -> Math.min(tokens + deposit, maxBudget));
+    }
+
+    private boolean withdraw() {
+        long tokens;
+        do {
+            tokens = budget.get();
+            if (tokens < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(tokens, tokens - TOKEN));
+        return true;
+    }
+
+    private void backoff(int attempt, RuntimeException failure) {
+        try (TransferTrace.Stage ignored = TransferTrace.current().enter(TransferStage.RETRY_BACKOFF)) {
+            Thread.sleep(backoffMs(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    // full jitter: uniform in [0, min(max, initial * 2^(attempt - 1))]
+    long backoffMs(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private Counter exhausted(String reason) {
+        return Counter.builder("transfer.retries.exhausted")
+                .description("Transient transfer failures returned to the caller without another attempt")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.enums.TransferStage;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Stage timings of one request, kept on the request thread. Times are exclusive: entering a stage pauses the
+// enclosing one, so lock waits inside the balance mutation are not counted twice. Threads without an active
+// trace (pipeline writer, benchmarks) get a no-op instance.
+public final class TransferTrace {
+    private static final ThreadLocal<TransferTrace> CURRENT = new ThreadLocal<>();
+    private static final TransferTrace NOOP = new TransferTrace(null);
+    private static final Stage NOOP_STAGE = () -> {};
+
+    private final TransferTrace previous;
+    private final long[] nanos = new long[TransferStage.values().length];
+    private final boolean[] entered = new boolean[TransferStage.values().length];
+    private ActiveStage active;
+    private boolean transfer;
+    private String pair = "unknown";
+    private String path = "unknown";
+
+    private TransferTrace(TransferTrace previous) {
+        this.previous = previous;
+    }
+
+    public static TransferTrace begin() {
+        TransferTrace trace = new TransferTrace(CURRENT.get());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static TransferTrace current() {
+        TransferTrace trace = CURRENT.get();
+        return trace != null ? trace : NOOP;
+    }
+
+    public void end() {
+        if (this == NOOP) {
+            return;
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public Stage enter(TransferStage stage) {
+        if (this == NOOP) {
+            return NOOP_STAGE;
+        }
+        long now = System.nanoTime();
+        if (active != null) {
+            nanos[active.stage.ordinal()] += now - active.resumedAt;
+        }
+        entered[stage.ordinal()] = true;
+        active = new ActiveStage(stage, active, now);
+        return active;
+    }
+
+    // the commit stage starts in beforeCommit and ends once the transaction completed
+    public void timeCommit() {
+        if (this == NOOP || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Stage commit;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commit = enter(TransferStage.COMMIT);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (commit != null) {
+                    commit.close();
+                }
+            }
+        });
+    }
+
+    // only traces of single P2P transfers are published
+    public void markTransfer() {
+        transfer = true;
+    }
+
+    public void route(CurrencyType senderCurrency, CurrencyType receiverCurrency, boolean internal) {
+        pair = senderCurrency + "_" + receiverCurrency;
+        path = internal ? "internal" : "external";
+    }
+
+    boolean isTransfer() {
+        return transfer;
+    }
+
+    boolean wasEntered(TransferStage stage) {
+        return entered[stage.ordinal()];
+    }
+
+    long nanos(TransferStage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    String pair() {
+        return pair;
+    }
+
+    String path() {
+        return path;
+    }
+
+    public interface Stage extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final class ActiveStage implements Stage {
+        private final TransferStage stage;
+        private final ActiveStage parent;
+        private long resumedAt;
+
+        private ActiveStage(TransferStage stage, ActiveStage parent, long resumedAt) {
+            this.stage = stage;
+            this.parent = parent;
+            this.resumedAt = resumedAt;
+        }
+
+        @Override
+        public void close() {
+            long now = System.nanoTime();
+            nanos[stage.ordinal()] += now - resumedAt;
+            active = parent;
+            if (parent != null) {
+                parent.resumedAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.entities.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Authenticated principals keyed by email. Entries are detached User entities with roles and permissions
+// already loaded; a role or password change is visible after invalidate(email) or at most ttl-seconds later.
+@Component
+public class UserPrincipalCache {
+    private final Cache<String, User> cache;
+
+    public UserPrincipalCache(
+            MeterRegistry registry,
+            @Value("${app.security.principal.cache.max-size:10000}") long maxSize,
+            @Value("${app.security.principal.cache.ttl-seconds:60}") long ttlSeconds
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "security.principal");
+    }
+
+    public User get(String email, Function<String, User> loader) {
+        return cache.get(email, loader);
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(email);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
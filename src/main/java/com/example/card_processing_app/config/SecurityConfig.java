@@ -36,12 +36,18 @@ public class SecurityConfig {
             "/actuator/**"
     };
 
+    // actuator endpoints that reveal account data; matched before the white list
+    private static final String[] ADMIN_ACTUATOR = {
+            "/actuator/contendedaccounts/**"
+    };
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(ADMIN_ACTUATOR).hasRole("ADMIN")
                         .requestMatchers(WHITE_LIST).permitAll()
                         .anyRequest().authenticated()
                 )
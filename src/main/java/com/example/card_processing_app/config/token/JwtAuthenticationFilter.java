@@ -1,10 +1,14 @@
 package com.example.card_processing_app.config.token;
 
+import com.example.card_processing_app.components.UserPrincipalCache;
+import com.example.card_processing_app.entities.User;
+import com.example.card_processing_app.enums.PrincipalResolutionMode;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +26,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserPrincipalCache userPrincipalCache;
+
+    @Value("${app.security.principal.mode:CACHE}")
+    private PrincipalResolutionMode principalMode;
 
     @Override
     protected void doFilterInternal(
@@ -37,13 +45,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        final String email = jwtService.extractEmail(jwt);
+        final VerifiedToken token = jwtService.verify(jwt);
+        final String email = token.email();
 
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(email);
+            UserDetails userDetails = resolvePrincipal(token, email);
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (jwtService.isTokenValid(token, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = createAuthToken(userDetails, request);
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
@@ -52,6 +61,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(VerifiedToken token, String email) {
+        return switch (principalMode) {
+            case DATABASE -> userDetailsService.loadUserByUsername(email);
+            case CACHE -> loadCached(email);
+            case CLAIMS -> jwtService.extractClaimsPrincipal(token).orElseGet(() -> loadCached(email));
+        };
+    }
+
+    private User loadCached(String email) {
+        return userPrincipalCache.get(email, key -> (User) userDetailsService.loadUserByUsername(key));
+    }
+
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
@@ -1,7 +1,10 @@
 package com.example.card_processing_app.config.token;
 
+import com.example.card_processing_app.components.UserPrincipalCache;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -10,7 +13,10 @@ import org.springframework.stereotype.Service;
 
 @Log4j2
 @Service
+@RequiredArgsConstructor
 public class JwtLogoutHandler implements LogoutHandler {
+    private final JwtService jwtService;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Override
     public void logout(
@@ -26,6 +32,11 @@ public class JwtLogoutHandler implements LogoutHandler {
         }
 
         final String jwt = authHeader.substring(7);
+        try {
+            userPrincipalCache.invalidate(jwtService.extractEmail(jwt));
+        } catch (JwtException e) {
+            log.warn("Logout with an unreadable token, principal cache left as is");
+        }
 
         log.info("Cleaning security context for logout...");
         SecurityContextHolder.clearContext();
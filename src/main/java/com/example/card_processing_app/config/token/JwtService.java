@@ -1,44 +1,91 @@
 package com.example.card_processing_app.config.token;
 
+import com.example.card_processing_app.entities.Permission;
 import com.example.card_processing_app.entities.Role;
 import com.example.card_processing_app.entities.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class JwtService {
 
-    private final String secretKey;
     private final long jwtExpiration;
+    private final Key signingKey;
+    private final JwtParser parser;
+    // keyed by the whole token: a hit means this exact header, payload and signature were verified before
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     public JwtService(
             @Value("${app.security.jwt.secret-key}") String secretKey,
-            @Value("${app.security.jwt.expiration}") long jwtExpiration
+            @Value("${app.security.jwt.expiration}") long jwtExpiration,
+            @Value("${app.security.jwt.verified-cache.max-size:10000}") long verifiedCacheSize,
+            @Value("${app.security.jwt.verified-cache.ttl-seconds:300}") long verifiedCacheTtlSeconds,
+            MeterRegistry registry
     ) {
-        this.secretKey = secretKey;
         this.jwtExpiration = jwtExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+
+        if (verifiedCacheSize > 0) {
+            this.verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(verifiedCacheSize)
+                    .expireAfter(untilTokenExpiry(Duration.ofSeconds(verifiedCacheTtlSeconds)))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(registry, verifiedTokens, "security.jwt.verified");
+        } else {
+            this.verifiedTokens = null;
+        }
+    }
+
+    // the only place a token is parsed; throws JwtException for a bad signature, malformed or expired token
+    public VerifiedToken verify(String token) {
+        if (verifiedTokens == null) {
+            return new VerifiedToken(token, extractAllClaims(token));
+        }
+
+        VerifiedToken verified = verifiedTokens.get(token, key -> new VerifiedToken(key, extractAllClaims(key)));
+        if (verified.isExpired()) {
+            verifiedTokens.invalidate(token);
+            throw new ExpiredJwtException(null, verified.claims(), "JWT expired at " + verified.expiration());
+        }
+        return verified;
     }
 
     public String extractEmail(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).email();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(verify(token).claims());
     }
 
     public String generateToken(User user) {
@@ -47,6 +94,11 @@ public class JwtService {
         extraClaims.put("roles", user.getRoles().stream()
                 .map(Role::getName)
                 .collect(Collectors.toList()));
+        extraClaims.put("permissions", user.getRoles().stream()
+                .collect(Collectors.toMap(
+                        Role::getName,
+                        role -> role.getPermissions().stream().map(Permission::getName).toList()
+                )));
 
         return buildToken(extraClaims, user.getEmail(), jwtExpiration);
     }
@@ -62,34 +114,66 @@ public class JwtService {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String email = extractEmail(token);
-        return (email.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
+    // principal rebuilt from the signed claims without touching the database; empty for tokens
+    // issued before the permissions claim existed
+    public Optional<User> extractClaimsPrincipal(VerifiedToken token) {
+        Claims claims = token.claims();
+        Object userId = claims.get("userId");
+        Object permissions = claims.get("permissions");
+        if (userId == null || !(permissions instanceof Map<?, ?> permissionsByRole)) {
+            return Optional.empty();
+        }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        Set<Role> roles = new HashSet<>();
+        permissionsByRole.forEach((roleName, names) -> {
+            Role role = new Role();
+            role.setName(roleName.toString());
+            if (names instanceof Collection<?> permissionNames) {
+                permissionNames.forEach(name -> {
+                    Permission permission = new Permission();
+                    permission.setName(name.toString());
+                    role.getPermissions().add(permission);
+                });
+            }
+            roles.add(role);
+        });
+
+        User user = new User();
+        user.setId(UUID.fromString(userId.toString()));
+        user.setEmail(claims.getSubject());
+        user.setRoles(roles);
+        return Optional.of(user);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.email().equals(userDetails.getUsername()) && !token.isExpired();
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private Expiry<String, VerifiedToken> untilTokenExpiry(Duration maxTtl) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                long untilExpiry = Duration.ofMillis(value.expiration().getTime() - System.currentTimeMillis()).toNanos();
+                return Math.max(0, Math.min(untilExpiry, maxTtl.toNanos()));
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.example.card_processing_app.config.token;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+// Result of one signature check; everything the request needs is read from here instead of re-parsing
+public record VerifiedToken(
+        String token,
+        Claims claims
+) {
+    public String email() {
+        return claims.getSubject();
+    }
+
+    public Date expiration() {
+        return claims.getExpiration();
+    }
+
+    public boolean isExpired() {
+        return expiration().before(new Date());
+    }
+}
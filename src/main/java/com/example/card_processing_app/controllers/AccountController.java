@@ -0,0 +1,60 @@
+package com.example.card_processing_app.controllers;
+
+import com.example.card_processing_app.dto.response.AccountStatementResponseDto;
+import com.example.card_processing_app.entities.User;
+import com.example.card_processing_app.services.AccountShardService;
+import com.example.card_processing_app.services.AccountStatementService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/account")
+public class AccountController {
+    private final AccountShardService accountShardService;
+    private final AccountStatementService accountStatementService;
+
+    @Operation(
+            summary = "Change hot account mode",
+            description = "Backs the account with the given number of sub-balance shards so incoming transfers " +
+                    "do not serialize on one row lock. Use 0 to turn hot mode off."
+    )
+    @PreAuthorize("hasAnyRole('ADMIN')")
+    @PutMapping("/{accountId}/shards")
+    public ResponseEntity<Void> changeShardCount(
+            @Parameter(required = true)
+            @PathVariable UUID accountId,
+            @RequestParam int shardCount
+    ) {
+        accountShardService.changeShardCount(accountId, shardCount);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+            summary = "Get account statement",
+            description = "Opening and closing balance plus debit/credit totals and counts for the days from..to (inclusive). " +
+                    "Built from daily balance snapshots and only the not yet snapshotted tail of transactions."
+    )
+    @PreAuthorize("hasAnyRole('USER') || hasAnyRole('ADMIN')")
+    @GetMapping("/{accountId}/statement")
+    public ResponseEntity<AccountStatementResponseDto> getStatement(
+            @Parameter(required = true)
+            @PathVariable UUID accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal User user
+    ) {
+        return ResponseEntity.ok(accountStatementService.getStatement(accountId, from, to, user));
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.card_processing_app.controllers;
 
 import com.example.card_processing_app.annotations.Idempotent;
+import com.example.card_processing_app.dto.request.BatchP2PRequest;
 import com.example.card_processing_app.dto.request.P2PRequest;
+import com.example.card_processing_app.dto.response.BatchP2PResponseDto;
+import com.example.card_processing_app.dto.response.CursorPageResponseDto;
 import com.example.card_processing_app.dto.response.TransactionResponseDto;
 import com.example.card_processing_app.entities.User;
+import com.example.card_processing_app.enums.ExportFormat;
+import com.example.card_processing_app.services.TransactionExportService;
 import com.example.card_processing_app.services.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,11 +19,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @RestController
@@ -26,6 +37,7 @@ import java.util.UUID;
 @RequestMapping("/api/v1/transaction")
 public class TransactionController {
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
 
     @PreAuthorize("hasAnyRole('USER') and hasAuthority('EXECUTE_P2P_TRANSFER')")
     @PostMapping("/p2p")
@@ -38,9 +50,25 @@ public class TransactionController {
         return ResponseEntity.ok().build();
     }
 
+    @Operation(
+            summary = "Execute P2P transfers in one batch",
+            description = "Locks every involved account once and returns a result per transfer, in request order. " +
+                    "A transfer without sufficient funds fails on its own without failing the batch."
+    )
+    @PreAuthorize("hasAnyRole('USER') and hasAuthority('EXECUTE_P2P_TRANSFER')")
+    @PostMapping("/p2p/batch")
+    @Idempotent
+    public ResponseEntity<BatchP2PResponseDto> executeBatchP2P(
+            @RequestHeader("Idempotency-Key") String idempotencyKey,
+            @RequestBody @Valid BatchP2PRequest request) {
+
+        return ResponseEntity.ok(transactionService.executeBatchP2P(request, idempotencyKey));
+    }
+
     @Operation(
             summary = "Get card transaction history",
-            description = "Retrieves a paginated list of transactions for a specific card. " +
+            description = "Retrieves a paginated list of transactions for a specific card within [from, to). " +
+                    "Without from/to the last 90 days are returned; a window may span at most 366 days. " +
                     "Supports pagination and sorting. Default sort: createdAt, DESC"
     )
     @PreAuthorize("hasAnyRole('USER')")
@@ -48,6 +76,8 @@ public class TransactionController {
     public ResponseEntity<Page<TransactionResponseDto>> getHistory(
             @Parameter(required = true)
             @PathVariable UUID cardId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
             @ParameterObject
             @PageableDefault(
                     size = 20,
@@ -58,8 +88,54 @@ public class TransactionController {
             @Parameter(hidden = true)
             @AuthenticationPrincipal User user
     ) {
-        Page<TransactionResponseDto> history = transactionService.getTransactionHistoryByCardId(cardId, pageable, user);
+        Page<TransactionResponseDto> history = transactionService.getTransactionHistoryByCardId(cardId, from, to, pageable, user);
         return ResponseEntity.ok(history);
     }
 
+    @Operation(
+            summary = "Get card transaction history by cursor",
+            description = "Returns transactions within [from, to) newest first. Pass the nextCursor of a response, " +
+                    "with the same from/to, to get the following page; no total count is computed."
+    )
+    @PreAuthorize("hasAnyRole('USER')")
+    @GetMapping("/history/{cardId}/cursor")
+    public ResponseEntity<CursorPageResponseDto<TransactionResponseDto>> getHistoryByCursor(
+            @Parameter(required = true)
+            @PathVariable UUID cardId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal User user
+    ) {
+        return ResponseEntity.ok(transactionService.getTransactionHistoryByCursor(cardId, from, to, cursor, limit, user));
+    }
+
+    @Operation(
+            summary = "Export card statement",
+            description = "Streams all transactions of a card within [from, to), oldest first, as NDJSON or CSV. " +
+                    "Without from/to the last 365 days are exported. Administrators may export any card."
+    )
+    @PreAuthorize("hasAnyRole('USER') || hasAnyRole('ADMIN')")
+    @GetMapping("/history/{cardId}/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @Parameter(required = true)
+            @PathVariable UUID cardId,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal User user
+    ) {
+        StreamingResponseBody body = transactionExportService.export(cardId, from, to, format, user);
+        String fileName = "statement-" + cardId + "." + format.getExtension();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.card_processing_app.dto;
+
+import java.math.BigDecimal;
+
+// balance of the account row after a conditional UPDATE; for a hot account the row is only part of the total
+public record BalanceAfter(
+        BigDecimal balance,
+        boolean hot
+) {
+    // what the ledger records: nothing for a hot account, whose total is not serialized with its shard credits
+    public BigDecimal ledgerBalance() {
+        return hot ? null : balance;
+    }
+}
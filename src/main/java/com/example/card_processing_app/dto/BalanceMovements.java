@@ -0,0 +1,25 @@
+package com.example.card_processing_app.dto;
+
+import java.math.BigDecimal;
+
+public record BalanceMovements(
+        BigDecimal debitTotal,
+        BigDecimal creditTotal,
+        long debitCount,
+        long creditCount
+) {
+    public static final BalanceMovements NONE = new BalanceMovements(BigDecimal.ZERO, BigDecimal.ZERO, 0, 0);
+
+    public BigDecimal net() {
+        return creditTotal.subtract(debitTotal);
+    }
+
+    public BalanceMovements plus(BalanceMovements other) {
+        return new BalanceMovements(
+                debitTotal.add(other.debitTotal),
+                creditTotal.add(other.creditTotal),
+                debitCount + other.debitCount,
+                creditCount + other.creditCount
+        );
+    }
+}
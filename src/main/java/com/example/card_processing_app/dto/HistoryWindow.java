@@ -0,0 +1,23 @@
+package com.example.card_processing_app.dto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Half-open [from, to) range on created_at; bounding every history query lets PostgreSQL prune partitions
+public record HistoryWindow(
+        LocalDateTime from,
+        LocalDateTime to
+) {
+    public static HistoryWindow resolve(LocalDateTime from, LocalDateTime to, int defaultDays, int maxDays) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(defaultDays);
+
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("History window 'from' must be before 'to'");
+        }
+        if (Duration.between(start, end).compareTo(Duration.ofDays(maxDays)) > 0) {
+            throw new IllegalArgumentException("History window cannot exceed " + maxDays + " days");
+        }
+        return new HistoryWindow(start, end);
+    }
+}
@@ -4,7 +4,7 @@ import com.example.card_processing_app.enums.IdempotencyStatus;
 
 public record IdempotencyResult(
         IdempotencyStatus status,
-        String cachedValue
+        byte[] cachedValue
 ) {
     public static IdempotencyResult newRequest() {
         return new IdempotencyResult(IdempotencyStatus.NEW, null);
@@ -14,7 +14,7 @@ public record IdempotencyResult(
         return new IdempotencyResult(IdempotencyStatus.PROCESSING, null);
     }
 
-    public static IdempotencyResult completed(String value) {
+    public static IdempotencyResult completed(byte[] value) {
         return new IdempotencyResult(IdempotencyStatus.COMPLETED, value);
     }
 }
@@ -0,0 +1,10 @@
+package com.example.card_processing_app.dto;
+
+import java.time.LocalDateTime;
+
+// one range partition of transactions, [from, to)
+public record TransactionPartition(
+        String name,
+        LocalDateTime from,
+        LocalDateTime to
+) {}
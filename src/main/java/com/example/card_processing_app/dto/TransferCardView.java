@@ -0,0 +1,15 @@
+package com.example.card_processing_app.dto;
+
+import com.example.card_processing_app.enums.AccountStatus;
+import com.example.card_processing_app.enums.CardStatus;
+import com.example.card_processing_app.enums.CurrencyType;
+
+import java.util.UUID;
+
+public record TransferCardView(
+        UUID cardId,
+        UUID accountId,
+        CurrencyType currency,
+        CardStatus status,
+        AccountStatus accountStatus
+) {}
@@ -0,0 +1,19 @@
+package com.example.card_processing_app.dto;
+
+import com.example.card_processing_app.enums.TransactionStatus;
+
+import java.util.UUID;
+
+public record TransferOutcome(
+        UUID referenceId,
+        TransactionStatus status,
+        String failureReason
+) {
+    public static TransferOutcome completed(UUID referenceId) {
+        return new TransferOutcome(referenceId, TransactionStatus.COMPLETED, null);
+    }
+
+    public static TransferOutcome failed(UUID referenceId, String failureReason) {
+        return new TransferOutcome(referenceId, TransactionStatus.FAILED, failureReason);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.card_processing_app.dto;
+
+import com.example.card_processing_app.enums.CurrencyType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record TransferQuote(
+        UUID senderCardId,
+        UUID receiverCardId,
+        UUID senderAccountId,
+        UUID receiverAccountId,
+        CurrencyType senderCurrency,
+        CurrencyType receiverCurrency,
+        BigDecimal exchangeRate,
+        BigDecimal senderAmount,
+        BigDecimal receiverAmount,
+        String externalId,
+        String description,
+        String idempotencyKey
+) {
+    public boolean isInternal() {
+        return senderAccountId.equals(receiverAccountId);
+    }
+}
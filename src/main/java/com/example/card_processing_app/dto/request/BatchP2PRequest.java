@@ -0,0 +1,15 @@
+package com.example.card_processing_app.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchP2PRequest(
+        @Schema(description = "Transfers to execute in one batch, results are returned in the same order")
+        @NotEmpty(message = "Batch must contain at least one transfer")
+        @Size(max = 5000, message = "Batch is too large (max 5000 transfers)")
+        List<@Valid P2PRequest> transfers
+) {}
@@ -0,0 +1,17 @@
+package com.example.card_processing_app.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record AccountStatementResponseDto(
+        UUID accountId,
+        LocalDate from,
+        LocalDate to,
+        BigDecimal openingBalance,
+        BigDecimal closingBalance,
+        BigDecimal debitTotal,
+        BigDecimal creditTotal,
+        long debitCount,
+        long creditCount
+) {}
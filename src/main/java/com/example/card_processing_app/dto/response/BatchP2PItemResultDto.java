@@ -0,0 +1,13 @@
+package com.example.card_processing_app.dto.response;
+
+import com.example.card_processing_app.enums.TransactionStatus;
+
+import java.util.UUID;
+
+public record BatchP2PItemResultDto(
+        int index,
+        String externalId,
+        UUID referenceId,
+        TransactionStatus status,
+        String failureReason
+) {}
@@ -0,0 +1,9 @@
+package com.example.card_processing_app.dto.response;
+
+import java.util.List;
+
+public record BatchP2PResponseDto(
+        int completed,
+        int failed,
+        List<BatchP2PItemResultDto> results
+) {}
@@ -0,0 +1,14 @@
+package com.example.card_processing_app.dto.response;
+
+import java.util.UUID;
+
+// waitedMs may overestimate by up to waitErrorMs; counts cover the time the account has been tracked
+public record ContendedAccountDto(
+        UUID accountId,
+        double waitedMs,
+        double waitErrorMs,
+        long contendedLocks,
+        long timeouts,
+        long deadlocks,
+        long retries
+) {}
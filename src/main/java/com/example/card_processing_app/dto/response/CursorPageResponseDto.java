@@ -0,0 +1,9 @@
+package com.example.card_processing_app.dto.response;
+
+import java.util.List;
+
+public record CursorPageResponseDto<T>(
+        List<T> items,
+        String nextCursor,
+        boolean hasMore
+) {}
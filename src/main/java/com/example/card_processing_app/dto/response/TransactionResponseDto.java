@@ -13,6 +13,7 @@ public record TransactionResponseDto(
         UUID transactionId,
         String externalId,
         UUID cardId,
+        // null for movements on hot accounts
         BigDecimal afterBalance,
         BigDecimal amount,
         CurrencyType currency,
@@ -39,6 +39,9 @@ public class Account extends BaseEntity {
     @Column(nullable = false)
     private AccountStatus status = AccountStatus.ACTIVE;
 
+    @Column(nullable = false)
+    private int shardCount = 0;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -58,6 +61,10 @@ public class Account extends BaseEntity {
         return getClass().hashCode();
     }
 
+    public boolean isHot() {
+        return shardCount > 0;
+    }
+
     public void addCard(Card card) {
         cards.add(card);
         card.setAccount(this);
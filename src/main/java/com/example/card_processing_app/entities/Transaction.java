@@ -49,10 +49,11 @@ public class Transaction {
     @Column(nullable = false)
     private String idempotencyKey;
 
-    @Column(nullable = false, precision = 19, scale = 2)
+    // both empty for movements on hot accounts, whose total balance is spread over unserialized shards
+    @Column(precision = 19, scale = 2)
     private BigDecimal beforeBalance;
 
-    @Column(nullable = false, precision = 19, scale = 2)
+    @Column(precision = 19, scale = 2)
     private BigDecimal afterBalance;
 
     @Enumerated(EnumType.STRING)
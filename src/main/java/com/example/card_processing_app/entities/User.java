@@ -107,6 +107,10 @@ public class User implements UserDetails {
         return Objects.hash(email);
     }
 
+    public boolean hasRole(String roleName) {
+        return roles.stream().anyMatch(role -> roleName.equals(role.getName()));
+    }
+
     public void addAccount(Account account) {
         if (account == null) return;
 
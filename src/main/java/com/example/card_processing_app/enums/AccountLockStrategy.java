@@ -0,0 +1,12 @@
+package com.example.card_processing_app.enums;
+
+public enum AccountLockStrategy {
+    // FOR UPDATE, waits as long as the holder keeps the row
+    WAIT,
+    // FOR UPDATE under SET LOCAL lock_timeout
+    TIMEOUT,
+    // FOR UPDATE NOWAIT, fails at once when the row is held
+    NOWAIT,
+    // FOR UPDATE SKIP LOCKED, polled until the timeout
+    SKIP_LOCKED
+}
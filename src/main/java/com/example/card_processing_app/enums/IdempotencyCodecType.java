@@ -0,0 +1,25 @@
+package com.example.card_processing_app.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum IdempotencyCodecType {
+    JSON((byte) 1),
+    SMILE((byte) 2);
+
+    // written as the first byte of every stored payload, so values written by another codec stay readable
+    private final byte id;
+
+    IdempotencyCodecType(byte id) {
+        this.id = id;
+    }
+
+    public static IdempotencyCodecType fromId(byte id) {
+        for (IdempotencyCodecType type : values()) {
+            if (type.id == id) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
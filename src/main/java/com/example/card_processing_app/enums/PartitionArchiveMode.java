@@ -0,0 +1,10 @@
+package com.example.card_processing_app.enums;
+
+public enum PartitionArchiveMode {
+    // partitions are never detached
+    NONE,
+    // detached partitions are moved into the archive schema, still queryable
+    TABLE,
+    // detached partitions are written as gzipped CSV into the archive directory and dropped
+    FILE
+}
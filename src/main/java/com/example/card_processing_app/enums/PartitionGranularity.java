@@ -0,0 +1,83 @@
+package com.example.card_processing_app.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+
+// Range size of transactions partitions; every granularity is aligned to midnight, weeks start on Monday
+// like date_trunc('week', ...) in PostgreSQL
+public enum PartitionGranularity {
+    MONTHLY("month") {
+        @Override
+        public LocalDateTime periodStart(LocalDateTime time) {
+            return time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime periodStart) {
+            return periodStart.plusMonths(1);
+        }
+
+        @Override
+        public String partitionName(LocalDateTime periodStart) {
+            return String.format("transactions_%d_%02d", periodStart.getYear(), periodStart.getMonthValue());
+        }
+    },
+    WEEKLY("week") {
+        @Override
+        public LocalDateTime periodStart(LocalDateTime time) {
+            return time.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).truncatedTo(ChronoUnit.DAYS);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime periodStart) {
+            return periodStart.plusWeeks(1);
+        }
+
+        @Override
+        public String partitionName(LocalDateTime periodStart) {
+            return String.format("transactions_%d_w%02d",
+                    periodStart.get(IsoFields.WEEK_BASED_YEAR), periodStart.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+        }
+    },
+    DAILY("day") {
+        @Override
+        public LocalDateTime periodStart(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS);
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime periodStart) {
+            return periodStart.plusDays(1);
+        }
+
+        @Override
+        public String partitionName(LocalDateTime periodStart) {
+            return String.format("transactions_%d_%02d_%02d",
+                    periodStart.getYear(), periodStart.getMonthValue(), periodStart.getDayOfMonth());
+        }
+    };
+
+    private final String truncUnit;
+
+    PartitionGranularity(String truncUnit) {
+        this.truncUnit = truncUnit;
+    }
+
+    public abstract LocalDateTime periodStart(LocalDateTime time);
+
+    public abstract LocalDateTime next(LocalDateTime periodStart);
+
+    public abstract String partitionName(LocalDateTime periodStart);
+
+    // field argument of date_trunc that yields the same period starts
+    public String getTruncUnit() {
+        return truncUnit;
+    }
+
+    public boolean isAligned(LocalDateTime from, LocalDateTime to) {
+        return periodStart(from).equals(from) && next(from).equals(to);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.card_processing_app.enums;
+
+public enum PrincipalResolutionMode {
+    DATABASE,
+    CACHE,
+    CLAIMS
+}
@@ -0,0 +1,6 @@
+package com.example.card_processing_app.enums;
+
+public enum TransferExecutionMode {
+    LOCKING,
+    ATOMIC
+}
@@ -0,0 +1,25 @@
+package com.example.card_processing_app.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum TransferStage {
+    IDEMPOTENCY_CHECK("idempotency_check"),
+    CARD_LOOKUP("card_lookup"),
+    RATE_FETCH("rate_fetch"),
+    PIPELINE_WAIT("pipeline_wait"),
+    LOCK_WAIT("lock_wait"),
+    // sleeps between attempts of a transfer transaction that failed on a lock timeout or deadlock
+    RETRY_BACKOFF("retry_backoff"),
+    BALANCE_MUTATION("balance_mutation"),
+    LEDGER_INSERT("ledger_insert"),
+    // includes the JPA flush of the locked accounts, which is where LOCKING mode writes the balances
+    COMMIT("commit"),
+    IDEMPOTENCY_COMPLETE("idempotency_complete");
+
+    private final String tag;
+
+    TransferStage(String tag) {
+        this.tag = tag;
+    }
+}
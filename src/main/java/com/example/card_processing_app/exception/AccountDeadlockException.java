@@ -0,0 +1,7 @@
+package com.example.card_processing_app.exception;
+
+public class AccountDeadlockException extends RuntimeException {
+    public AccountDeadlockException(String message) {
+        super(message);
+    }
+}
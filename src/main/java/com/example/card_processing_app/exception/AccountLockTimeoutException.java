@@ -0,0 +1,7 @@
+package com.example.card_processing_app.exception;
+
+public class AccountLockTimeoutException extends RuntimeException {
+    public AccountLockTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.card_processing_app.exception;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+// the transfer is still being committed; settlement completes once its outcome is known
+@Getter
+public class TransferOutcomeUnknownException extends RuntimeException {
+    private final transient CompletableFuture<?> settlement;
+
+    public TransferOutcomeUnknownException(String message, CompletableFuture<?> settlement) {
+        super(message);
+        this.settlement = settlement;
+    }
+}
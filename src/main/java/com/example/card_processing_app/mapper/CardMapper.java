@@ -4,9 +4,16 @@ import com.example.card_processing_app.dto.response.CardResponseDto;
 import com.example.card_processing_app.entities.Card;
 import lombok.experimental.UtilityClass;
 
+import java.math.BigDecimal;
+
 @UtilityClass
 public class CardMapper {
     public CardResponseDto toDto(Card card) {
+        return toDto(card, card.getAccount().getBalance());
+    }
+
+    // a hot account's entity balance leaves out unswept shard credits, so the caller passes the total
+    public CardResponseDto toDto(Card card, BigDecimal balance) {
         return new CardResponseDto(
                 card.getId(),
                 card.getCardNumber(),
@@ -15,7 +22,7 @@ public class CardMapper {
                 card.getAccount().getUser().getUsername(),
                 card.getCardType(),
                 card.getAccount().getAccountNumber(),
-                card.getAccount().getBalance(),
+                balance,
                 card.getAccount().getCurrency(),
                 card.getStatus().name()
         );
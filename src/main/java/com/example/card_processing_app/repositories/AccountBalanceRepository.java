@@ -0,0 +1,51 @@
+package com.example.card_processing_app.repositories;
+
+import com.example.card_processing_app.dto.BalanceAfter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class AccountBalanceRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String DEBIT_SQL =
+            "UPDATE accounts SET balance = balance - ?, updated_at = now() " +
+                    "WHERE id = ? AND balance >= ? RETURNING balance, shard_count > 0";
+
+    private static final String CREDIT_SQL =
+            "UPDATE accounts SET balance = balance + ?, updated_at = now() " +
+                    "WHERE id = ? RETURNING balance, shard_count > 0";
+
+    private static final String TRANSFER_WITHIN_SQL =
+            "UPDATE accounts SET balance = balance - ? + ?, updated_at = now() " +
+                    "WHERE id = ? AND balance >= ? RETURNING balance, shard_count > 0";
+
+    private static final RowMapper<BalanceAfter> BALANCE_AFTER =
+            (rs, rowNum) -> new BalanceAfter(rs.getBigDecimal(1), rs.getBoolean(2));
+
+    // empty when the account is missing or the balance does not cover the amount
+    public Optional<BalanceAfter> debit(UUID accountId, BigDecimal amount) {
+        return jdbcTemplate.query(DEBIT_SQL, BALANCE_AFTER, amount, accountId, amount)
+                .stream()
+                .findFirst();
+    }
+
+    public Optional<BalanceAfter> credit(UUID accountId, BigDecimal amount) {
+        return jdbcTemplate.query(CREDIT_SQL, BALANCE_AFTER, amount, accountId)
+                .stream()
+                .findFirst();
+    }
+
+    public Optional<BalanceAfter> transferWithin(UUID accountId, BigDecimal debitAmount, BigDecimal creditAmount) {
+        return jdbcTemplate.query(TRANSFER_WITHIN_SQL, BALANCE_AFTER, debitAmount, creditAmount, accountId, debitAmount)
+                .stream()
+                .findFirst();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.card_processing_app.repositories;
+
+import com.example.card_processing_app.dto.BalanceMovements;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class AccountDailyBalanceRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // opening balance is the previous snapshot's closing balance; accounts open at zero and every
+    // balance change is a ledger row, so an account without an earlier snapshot starts from 0
+    private static final String SNAPSHOT_DAY_SQL =
+            "INSERT INTO account_daily_balances (account_id, balance_date, opening_balance, closing_balance, " +
+                    "debit_total, credit_total, debit_count, credit_count, updated_at) " +
+                    "SELECT d.account_id, ?, coalesce(p.closing_balance, 0), " +
+                    "coalesce(p.closing_balance, 0) + d.credit_total - d.debit_total, " +
+                    "d.debit_total, d.credit_total, d.debit_count, d.credit_count, now() " +
+                    "FROM (" +
+                    "SELECT c.account_id, " +
+                    "coalesce(sum(t.amount) FILTER (WHERE t.type = 'DEBIT'), 0) AS debit_total, " +
+                    "coalesce(sum(t.amount) FILTER (WHERE t.type = 'CREDIT'), 0) AS credit_total, " +
+                    "count(*) FILTER (WHERE t.type = 'DEBIT') AS debit_count, " +
+                    "count(*) FILTER (WHERE t.type = 'CREDIT') AS credit_count " +
+                    "FROM transactions t JOIN cards c ON c.id = t.card_id " +
+                    "WHERE t.created_at >= ? AND t.created_at < ? AND t.status = 'COMPLETED' " +
+                    "GROUP BY c.account_id" +
+                    ") d " +
+                    "LEFT JOIN LATERAL (" +
+                    "SELECT b.closing_balance FROM account_daily_balances b " +
+                    "WHERE b.account_id = d.account_id AND b.balance_date < ? " +
+                    "ORDER BY b.balance_date DESC LIMIT 1" +
+                    ") p ON true " +
+                    "ON CONFLICT (account_id, balance_date) DO UPDATE SET " +
+                    "opening_balance = EXCLUDED.opening_balance, closing_balance = EXCLUDED.closing_balance, " +
+                    "debit_total = EXCLUDED.debit_total, credit_total = EXCLUDED.credit_total, " +
+                    "debit_count = EXCLUDED.debit_count, credit_count = EXCLUDED.credit_count, updated_at = now()";
+
+    private static final String ADVANCE_WATERMARK_SQL =
+            "INSERT INTO account_daily_balance_watermark (id, last_balance_date, updated_at) VALUES (1, ?, now()) " +
+                    "ON CONFLICT (id) DO UPDATE SET last_balance_date = EXCLUDED.last_balance_date, updated_at = now()";
+
+    private static final String CLOSING_BEFORE_SQL =
+            "SELECT closing_balance FROM account_daily_balances WHERE account_id = ? AND balance_date < ? " +
+                    "ORDER BY balance_date DESC LIMIT 1";
+
+    private static final String SNAPSHOT_MOVEMENTS_SQL =
+            "SELECT coalesce(sum(debit_total), 0) AS debit_total, coalesce(sum(credit_total), 0) AS credit_total, " +
+                    "coalesce(sum(debit_count), 0) AS debit_count, coalesce(sum(credit_count), 0) AS credit_count " +
+                    "FROM account_daily_balances WHERE account_id = ? AND balance_date >= ? AND balance_date <= ?";
+
+    private static final String LEDGER_MOVEMENTS_SQL =
+            "SELECT coalesce(sum(t.amount) FILTER (WHERE t.type = 'DEBIT'), 0) AS debit_total, " +
+                    "coalesce(sum(t.amount) FILTER (WHERE t.type = 'CREDIT'), 0) AS credit_total, " +
+                    "count(*) FILTER (WHERE t.type = 'DEBIT') AS debit_count, " +
+                    "count(*) FILTER (WHERE t.type = 'CREDIT') AS credit_count " +
+                    "FROM transactions t JOIN cards c ON c.id = t.card_id " +
+                    "WHERE c.account_id = ? AND t.created_at >= ? AND t.created_at < ? AND t.status = 'COMPLETED'";
+
+    private static final RowMapper<BalanceMovements> MOVEMENTS_MAPPER = (rs, rowNum) -> new BalanceMovements(
+            rs.getBigDecimal("debit_total"),
+            rs.getBigDecimal("credit_total"),
+            rs.getLong("debit_count"),
+            rs.getLong("credit_count")
+    );
+
+    public int snapshotDay(LocalDate day) {
+        Date balanceDate = Date.valueOf(day);
+        return jdbcTemplate.update(SNAPSHOT_DAY_SQL,
+                balanceDate,
+                Timestamp.valueOf(day.atStartOfDay()),
+                Timestamp.valueOf(day.plusDays(1).atStartOfDay()),
+                balanceDate);
+    }
+
+    public void advanceWatermark(LocalDate day) {
+        jdbcTemplate.update(ADVANCE_WATERMARK_SQL, Date.valueOf(day));
+    }
+
+    public Optional<LocalDate> findWatermark() {
+        return jdbcTemplate.queryForList("SELECT last_balance_date FROM account_daily_balance_watermark WHERE id = 1", Date.class)
+                .stream()
+                .findFirst()
+                .map(Date::toLocalDate);
+    }
+
+    // only used once, before the first snapshot exists
+    public Optional<LocalDate> findFirstTransactionDate() {
+        Timestamp first = jdbcTemplate.queryForObject("SELECT min(created_at) FROM transactions", Timestamp.class);
+        return Optional.ofNullable(first).map(ts -> ts.toLocalDateTime().toLocalDate());
+    }
+
+    public BigDecimal findClosingBalanceBefore(UUID accountId, LocalDate day) {
+        return jdbcTemplate.queryForList(CLOSING_BEFORE_SQL, BigDecimal.class, accountId, Date.valueOf(day))
+                .stream()
+                .findFirst()
+                .orElse(BigDecimal.ZERO);
+    }
+
+    public BalanceMovements sumSnapshots(UUID accountId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.queryForObject(SNAPSHOT_MOVEMENTS_SQL, MOVEMENTS_MAPPER,
+                accountId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public BalanceMovements sumLedger(UUID accountId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.queryForObject(LEDGER_MOVEMENTS_SQL, MOVEMENTS_MAPPER,
+                accountId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+}
@@ -5,10 +5,12 @@ import com.example.card_processing_app.entities.User;
 import com.example.card_processing_app.enums.AccountStatus;
 import com.example.card_processing_app.enums.CurrencyType;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -20,12 +22,28 @@ import java.util.UUID;
 public interface AccountRepository extends JpaRepository<Account, UUID> {
     boolean existsByAccountNumber(String accountNumber);
 
+    boolean existsByIdAndUserId(UUID id, UUID userId);
+
     Optional<Account> findByUserAndCurrencyAndStatus(User user, CurrencyType currency, AccountStatus status);
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT a FROM Account a WHERE a.id = :id")
     Optional<Account> findByIdWithLock(@Param("id") UUID id);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "0"))
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdWithLockNoWait(@Param("id") UUID id);
+
+    // -2 is Hibernate's LockOptions.SKIP_LOCKED: empty while another transaction holds the row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdWithLockSkipLocked(@Param("id") UUID id);
+
+    @Query("SELECT a.shardCount FROM Account a WHERE a.id = :id")
+    int findShardCountById(@Param("id") UUID id);
+
     @Modifying
     @Query("UPDATE Account a SET a.balance = a.balance - :amount WHERE a.id = :id AND a.balance >= :amount")
     int decreaseBalance(@Param("id") UUID id, @Param("amount") BigDecimal amount);
@@ -0,0 +1,95 @@
+package com.example.card_processing_app.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class AccountShardRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String CREATE_SHARD_SQL =
+            "INSERT INTO account_shards (account_id, shard_no, balance) VALUES (?, ?, 0) " +
+                    "ON CONFLICT (account_id, shard_no) DO NOTHING";
+
+    private static final String CREDIT_SHARD_SQL =
+            "UPDATE account_shards SET balance = balance + ?, updated_at = now() " +
+                    "WHERE account_id = ? AND shard_no = ?";
+
+    // sums the shards into a single amount and zeroes them in one statement
+    private static final String SWEEP_SHARDS_SQL =
+            "WITH swept AS (" +
+                    "SELECT shard_no, balance FROM account_shards " +
+                    "WHERE account_id = ? AND balance <> 0 FOR UPDATE" +
+                    "), cleared AS (" +
+                    "UPDATE account_shards s SET balance = 0, updated_at = now() FROM swept w " +
+                    "WHERE s.account_id = ? AND s.shard_no = w.shard_no RETURNING w.balance" +
+                    ") SELECT COALESCE(SUM(balance), 0) FROM cleared";
+
+    private static final String SHARD_BALANCE_SQL =
+            "SELECT COALESCE(SUM(balance), 0) FROM account_shards WHERE account_id = ?";
+
+    private static final String LOCK_SHARDS_SQL =
+            "SELECT shard_no FROM account_shards WHERE account_id = ? FOR UPDATE";
+
+    private static final String LOCK_ACCOUNT_SQL = "SELECT id FROM accounts WHERE id = ? FOR UPDATE";
+
+    private static final String SWEEP_SHARDS_INTO_ACCOUNT_SQL =
+            "WITH swept AS (" +
+                    "SELECT shard_no, balance FROM account_shards " +
+                    "WHERE account_id = ? AND balance <> 0 FOR UPDATE" +
+                    "), cleared AS (" +
+                    "UPDATE account_shards s SET balance = 0, updated_at = now() FROM swept w " +
+                    "WHERE s.account_id = ? AND s.shard_no = w.shard_no RETURNING w.balance" +
+                    ") UPDATE accounts SET balance = balance + (SELECT COALESCE(SUM(balance), 0) FROM cleared), " +
+                    "updated_at = now() WHERE id = ?";
+
+    public void createShards(UUID accountId, int shardCount) {
+        List<Object[]> args = new ArrayList<>(shardCount);
+        for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+            args.add(new Object[]{accountId, shardNo});
+        }
+        jdbcTemplate.batchUpdate(CREATE_SHARD_SQL, args);
+    }
+
+    // false when the shard is gone, e.g. dropped by a shard count change after the caller read the count
+    public boolean creditShard(UUID accountId, int shardNo, BigDecimal amount) {
+        return jdbcTemplate.update(CREDIT_SHARD_SQL, amount, accountId, shardNo) > 0;
+    }
+
+    // the sweep only locks non-zero shards; a resize must also hold the zero ones so no credit lands on them
+    public void lockShards(UUID accountId) {
+        jdbcTemplate.queryForList(LOCK_SHARDS_SQL, Integer.class, accountId);
+    }
+
+    // a read without locks: credits committed after it are not included
+    public BigDecimal getShardBalance(UUID accountId) {
+        return jdbcTemplate.queryForObject(SHARD_BALANCE_SQL, BigDecimal.class, accountId);
+    }
+
+    public BigDecimal sweepShards(UUID accountId) {
+        return jdbcTemplate.queryForObject(SWEEP_SHARDS_SQL, BigDecimal.class, accountId, accountId);
+    }
+
+    // same as sweepShards, but applied straight to accounts.balance without loading the entity;
+    // the account row is locked first to keep the account -> shards lock order used everywhere else
+    public void sweepShardsIntoAccount(UUID accountId) {
+        jdbcTemplate.queryForList(LOCK_ACCOUNT_SQL, UUID.class, accountId);
+        jdbcTemplate.update(SWEEP_SHARDS_INTO_ACCOUNT_SQL, accountId, accountId, accountId);
+    }
+
+    // only swept shards go; a non-zero one would take its credit with it
+    public void deleteEmptyShards(UUID accountId) {
+        jdbcTemplate.update("DELETE FROM account_shards WHERE account_id = ? AND balance = 0", accountId);
+    }
+
+    public List<UUID> findHotAccountIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM accounts WHERE shard_count > 0", UUID.class);
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.card_processing_app.repositories;
 
+import com.example.card_processing_app.dto.TransferCardView;
 import com.example.card_processing_app.entities.Card;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,6 +14,12 @@ import java.util.UUID;
 public interface CardRepository extends JpaRepository<Card, UUID> {
     boolean existsByCardNumber(String cardNumber);
 
+    boolean existsByIdAndAccountUserId(UUID id, UUID userId);
+
     @Query("SELECT c FROM Card c JOIN FETCH c.account WHERE c.account.user.id= :userId")
     List<Card> findAllByUserIdWithAccount(UUID userId);
+
+    @Query("SELECT new com.example.card_processing_app.dto.TransferCardView(c.id, a.id, c.currency, c.status, a.status) " +
+            "FROM Card c JOIN c.account a WHERE c.id IN :cardIds")
+    List<TransferCardView> findTransferViewsByIdIn(Collection<UUID> cardIds);
 }
@@ -0,0 +1,134 @@
+package com.example.card_processing_app.repositories;
+
+import com.example.card_processing_app.dto.response.TransactionResponseDto;
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.enums.PurposeType;
+import com.example.card_processing_app.enums.TransactionStatus;
+import com.example.card_processing_app.enums.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Read side of the history endpoints: selects only the response columns and maps rows straight into
+// TransactionResponseDto, no entities or card/account joins. Callers verify card ownership first.
+@Repository
+@RequiredArgsConstructor
+public class TransactionHistoryRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String COLUMNS =
+            "id, external_id, card_id, after_balance, amount, currency, purpose, type, status, created_at, description";
+
+    private static final String WINDOW = "card_id = ? AND created_at >= ? AND created_at < ?";
+
+    static final String LATEST_SQL =
+            "SELECT " + COLUMNS + " FROM transactions WHERE " + WINDOW +
+                    " ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    // the plain created_at bound is redundant with the row comparison but is what partition pruning can use
+    static final String BEFORE_SQL =
+            "SELECT " + COLUMNS + " FROM transactions WHERE card_id = ? AND created_at >= ? AND created_at <= ? " +
+                    "AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    static final String COUNT_SQL = "SELECT count(*) FROM transactions WHERE " + WINDOW;
+
+    static final String EXPORT_SQL =
+            "SELECT " + COLUMNS + " FROM transactions WHERE " + WINDOW + " ORDER BY created_at, id";
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final Map<String, String> SORTABLE_COLUMNS = Map.of(
+            "createdAt", "created_at",
+            "amount", "amount",
+            "afterBalance", "after_balance",
+            "currency", "currency",
+            "purpose", "purpose",
+            "type", "type",
+            "status", "status",
+            "externalId", "external_id"
+    );
+
+    private static final RowMapper<TransactionResponseDto> ROW_MAPPER = (rs, rowNum) -> new TransactionResponseDto(
+            rs.getObject("id", UUID.class),
+            rs.getString("external_id"),
+            rs.getObject("card_id", UUID.class),
+            rs.getBigDecimal("after_balance"),
+            rs.getBigDecimal("amount"),
+            CurrencyType.valueOf(rs.getString("currency")),
+            PurposeType.valueOf(rs.getString("purpose")),
+            TransactionType.valueOf(rs.getString("type")),
+            TransactionStatus.valueOf(rs.getString("status")),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getString("description")
+    );
+
+    public List<TransactionResponseDto> findLatest(UUID cardId, LocalDateTime from, LocalDateTime to, int limit) {
+        return jdbcTemplate.query(LATEST_SQL, ROW_MAPPER,
+                cardId, Timestamp.valueOf(from), Timestamp.valueOf(to), limit);
+    }
+
+    public List<TransactionResponseDto> findBefore(UUID cardId, LocalDateTime from, LocalDateTime createdAt, UUID id, int limit) {
+        Timestamp cursorAt = Timestamp.valueOf(createdAt);
+        return jdbcTemplate.query(BEFORE_SQL, ROW_MAPPER,
+                cardId, Timestamp.valueOf(from), cursorAt, cursorAt, id, limit);
+    }
+
+    public List<TransactionResponseDto> findPage(UUID cardId, LocalDateTime from, LocalDateTime to, Sort sort, int limit, long offset) {
+        String sql = "SELECT " + COLUMNS + " FROM transactions WHERE " + WINDOW +
+                " ORDER BY " + orderBy(sort) + " LIMIT ? OFFSET ?";
+        return jdbcTemplate.query(sql, ROW_MAPPER,
+                cardId, Timestamp.valueOf(from), Timestamp.valueOf(to), limit, offset);
+    }
+
+    public long count(UUID cardId, LocalDateTime from, LocalDateTime to) {
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class,
+                cardId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return count == null ? 0 : count;
+    }
+
+    // the PostgreSQL driver only uses a server-side cursor with autocommit off and a fetch size set,
+    // so rows arrive EXPORT_FETCH_SIZE at a time and are handed over one by one
+    @Transactional(readOnly = true)
+    public void forEachInWindow(UUID cardId, LocalDateTime from, LocalDateTime to, ThrowingConsumer<TransactionResponseDto> consumer) {
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(EXPORT_FETCH_SIZE);
+                    ps.setObject(1, cardId);
+                    ps.setTimestamp(2, Timestamp.valueOf(from));
+                    ps.setTimestamp(3, Timestamp.valueOf(to));
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(ROW_MAPPER.mapRow(rs, rs.getRow()))
+        );
+    }
+
+    // property names come from the request, so only whitelisted columns reach the SQL
+    private String orderBy(Sort sort) {
+        StringBuilder orderBy = new StringBuilder();
+        for (Sort.Order order : sort) {
+            String column = SORTABLE_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("Cannot sort transaction history by " + order.getProperty());
+            }
+            orderBy.append(column).append(order.isAscending() ? " ASC" : " DESC").append(", ");
+        }
+        if (orderBy.isEmpty()) {
+            orderBy.append("created_at DESC, ");
+        }
+        return orderBy.append("id DESC").toString();
+    }
+}
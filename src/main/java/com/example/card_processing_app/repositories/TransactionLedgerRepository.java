@@ -0,0 +1,150 @@
+package com.example.card_processing_app.repositories;
+
+import com.example.card_processing_app.entities.Transaction;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+@Log4j2
+@Repository
+@RequiredArgsConstructor
+public class TransactionLedgerRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String COLUMNS =
+            "id, created_at, card_id, target_card_id, external_id, reference_id, " +
+                    "amount, status, description, idempotency_key, before_balance, after_balance, " +
+                    "type, currency, purpose, failure_reason";
+
+    private static final int COLUMN_COUNT = 16;
+
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COPY_SQL = "COPY transactions (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    // keeps a single statement well below the 65535 bind parameter limit of the PostgreSQL protocol
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+
+    @Value("${app.ledger.copy-threshold:500}")
+    private int copyThreshold;
+
+    // rows must carry their id; they never enter the persistence context
+    public void write(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        if (transactions.size() >= copyThreshold) {
+            copy(transactions);
+        } else {
+            insert(transactions);
+        }
+    }
+
+    public void insert(List<Transaction> transactions) {
+        for (int from = 0; from < transactions.size(); from += MAX_ROWS_PER_INSERT) {
+            insertChunk(transactions.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, transactions.size())));
+        }
+    }
+
+    public long copy(List<Transaction> transactions) {
+        StringBuilder csv = new StringBuilder(transactions.size() * 256);
+        for (Transaction tx : transactions) {
+            appendCsvRow(csv, tx);
+        }
+
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn(COPY_SQL, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new SQLException("COPY into transactions failed", e);
+            }
+        });
+        log.debug("Copied {} ledger rows", rows);
+        return rows == null ? 0 : rows;
+    }
+
+    private void insertChunk(List<Transaction> chunk) {
+        StringBuilder sql = new StringBuilder("INSERT INTO transactions (" + COLUMNS + ") VALUES ");
+        List<Object> args = new ArrayList<>(chunk.size() * COLUMN_COUNT);
+
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+
+            Transaction tx = chunk.get(i);
+            args.add(tx.getId());
+            args.add(Timestamp.valueOf(tx.getCreatedAt()));
+            args.add(tx.getCard().getId());
+            args.add(tx.getTargetCardId());
+            args.add(tx.getExternalId());
+            args.add(tx.getReferenceId());
+            args.add(tx.getAmount());
+            args.add(tx.getStatus().name());
+            args.add(tx.getDescription());
+            args.add(tx.getIdempotencyKey());
+            args.add(tx.getBeforeBalance());
+            args.add(tx.getAfterBalance());
+            args.add(tx.getType().name());
+            args.add(tx.getCurrency().name());
+            args.add(tx.getPurpose().name());
+            args.add(tx.getFailureReason());
+        }
+
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    private void appendCsvRow(StringBuilder csv, Transaction tx) {
+        csv.append(tx.getId()).append(',')
+                .append(tx.getCreatedAt()).append(',')
+                .append(tx.getCard().getId()).append(',')
+                .append(tx.getTargetCardId()).append(',');
+        appendCsvText(csv, tx.getExternalId());
+        csv.append(',').append(tx.getReferenceId()).append(',')
+                .append(tx.getAmount().toPlainString()).append(',')
+                .append(tx.getStatus().name()).append(',');
+        appendCsvText(csv, tx.getDescription());
+        csv.append(',');
+        appendCsvText(csv, tx.getIdempotencyKey());
+        csv.append(',');
+        appendCsvAmount(csv, tx.getBeforeBalance());
+        csv.append(',');
+        appendCsvAmount(csv, tx.getAfterBalance());
+        csv.append(',').append(tx.getType().name())
+                .append(',').append(tx.getCurrency().name())
+                .append(',').append(tx.getPurpose().name())
+                .append(',');
+        appendCsvText(csv, tx.getFailureReason());
+        csv.append('\n');
+    }
+
+    // a null amount is written as an unquoted empty field, which COPY reads as NULL
+    private void appendCsvAmount(StringBuilder csv, BigDecimal value) {
+        if (value != null) {
+            csv.append(value.toPlainString());
+        }
+    }
+
+    // an unquoted empty field is NULL in CSV mode, so every non-null text value is quoted
+    private void appendCsvText(StringBuilder csv, String value) {
+        if (value == null) {
+            return;
+        }
+        csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.components.AccountLockMetrics;
+import com.example.card_processing_app.entities.Account;
+import com.example.card_processing_app.enums.AccountLockStrategy;
+import com.example.card_processing_app.exception.AccountDeadlockException;
+import com.example.card_processing_app.exception.AccountLockTimeoutException;
+import com.example.card_processing_app.exception.RecordNotFoundException;
+import com.example.card_processing_app.repositories.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Every account row lock goes through here so the configured strategy, the wait metrics and the translation
+// of lock failures into typed exceptions apply alike. A failed lock aborts the PostgreSQL transaction, so the
+// exceptions are only ever handled by retrying the whole transaction.
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class AccountLockService {
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountLockMetrics accountLockMetrics;
+
+    private static final String DEADLOCK_DETECTED = "40P01";
+    private static final Object LOCK_TIMEOUT_APPLIED = new Object();
+
+    @Value("${app.accounts.lock.strategy:TIMEOUT}")
+    private AccountLockStrategy strategy;
+
+    @Value("${app.accounts.lock.timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Value("${app.accounts.lock.skip-locked-poll-ms:5}")
+    private long skipLockedPollMs;
+
+    // must run inside a transaction, the lock is held until it ends
+    public Account lock(UUID accountId) {
+        long start = System.nanoTime();
+        try {
+            Account account = switch (strategy) {
+                case WAIT -> accountRepository.findByIdWithLock(accountId).orElseThrow(this::notFound);
+                case TIMEOUT -> {
+                    applyLockTimeout();
+                    yield accountRepository.findByIdWithLock(accountId).orElseThrow(this::notFound);
+                }
+                case NOWAIT -> accountRepository.findByIdWithLockNoWait(accountId).orElseThrow(this::notFound);
+                case SKIP_LOCKED -> pollSkipLocked(accountId, start);
+            };
+            accountLockMetrics.recordAcquired(accountId, System.nanoTime() - start);
+            return account;
+        } catch (PessimisticLockingFailureException e) {
+            throw translate(accountId, start, e);
+        }
+    }
+
+    // for statements that take the row lock implicitly, like the conditional UPDATEs of the ATOMIC mode; an
+    // UPDATE has no NOWAIT or SKIP LOCKED form, so every strategy but WAIT bounds it by lock_timeout
+    public <T> T guardImplicitLock(UUID accountId, Supplier<T> statement) {
+        long start = System.nanoTime();
+        try {
+            if (strategy != AccountLockStrategy.WAIT) {
+                applyLockTimeout();
+            }
+            T result = statement.get();
+            accountLockMetrics.recordAcquired(accountId, System.nanoTime() - start);
+            return result;
+        } catch (PessimisticLockingFailureException e) {
+            throw translate(accountId, start, e);
+        }
+    }
+
+    // SKIP LOCKED returns nothing while the row is held, so the select is repeated until the deadline; a miss
+    // on the first attempt may also mean the account does not exist, which is checked once
+    private Account pollSkipLocked(UUID accountId, long start) {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean checkedExists = false;
+
+        while (true) {
+            Optional<Account> account = accountRepository.findByIdWithLockSkipLocked(accountId);
+            if (account.isPresent()) {
+                return account.get();
+            }
+            if (!checkedExists) {
+                if (!accountRepository.existsById(accountId)) {
+                    throw notFound();
+                }
+                checkedExists = true;
+            }
+            if (System.nanoTime() >= deadline) {
+                accountLockMetrics.recordTimeout(accountId, System.nanoTime() - start);
+                throw new AccountLockTimeoutException("Account is busy, try again later");
+            }
+            accountLockMetrics.recordRetry(accountId);
+            sleep();
+        }
+    }
+
+    // SET LOCAL lasts until the transaction ends, so it is issued once per transaction
+    private void applyLockTimeout() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(LOCK_TIMEOUT_APPLIED)) {
+            return;
+        }
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + timeoutMs);
+        TransactionSynchronizationManager.bindResource(LOCK_TIMEOUT_APPLIED, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LOCK_TIMEOUT_APPLIED);
+            }
+        });
+    }
+
+    private RuntimeException translate(UUID accountId, long start, PessimisticLockingFailureException e) {
+        long waited = System.nanoTime() - start;
+        if (DEADLOCK_DETECTED.equals(sqlState(e))) {
+            accountLockMetrics.recordDeadlock(accountId, waited);
+            log.warn("Deadlock detected while locking account {}", accountId);
+            return new AccountDeadlockException("Transfer conflicted with a concurrent transfer, try again");
+        }
+        accountLockMetrics.recordTimeout(accountId, waited);
+        return new AccountLockTimeoutException("Account is busy, try again later");
+    }
+
+    private String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null) {
+                return sql.getSQLState();
+            }
+        }
+        return null;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(skipLockedPollMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountLockTimeoutException("Interrupted while waiting for account lock");
+        }
+    }
+
+    private RecordNotFoundException notFound() {
+        return new RecordNotFoundException("Account not found");
+    }
+}
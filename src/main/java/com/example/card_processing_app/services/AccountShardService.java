@@ -0,0 +1,84 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.entities.Account;
+import com.example.card_processing_app.exception.RecordNotFoundException;
+import com.example.card_processing_app.repositories.AccountBalanceRepository;
+import com.example.card_processing_app.repositories.AccountShardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class AccountShardService {
+    private final AccountShardRepository accountShardRepository;
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final AccountLockService accountLockService;
+
+    @Value("${app.accounts.hot.max-shards:64}")
+    private int maxShards;
+
+    @Transactional
+    public void changeShardCount(UUID accountId, int shardCount) {
+        if (shardCount < 0 || shardCount > maxShards) {
+            throw new IllegalArgumentException("Shard count must be between 0 and " + maxShards);
+        }
+
+        Account account = accountLockService.lock(accountId);
+
+        accountShardRepository.lockShards(accountId);
+        consolidate(account);
+        accountShardRepository.deleteEmptyShards(accountId);
+
+        if (shardCount > 0) {
+            accountShardRepository.createShards(accountId, shardCount);
+        }
+        account.setShardCount(shardCount);
+
+        log.info("Account {} shard count changed to {}", accountId, shardCount);
+    }
+
+    // only the shard row is locked, so concurrent credits to one hot account do not serialize; for the same
+    // reason there is no exact account balance right after this credit, and none is returned; the shard count
+    // is read without a lock, so a shard dropped by a resize in between sends the credit to the account row
+    public void credit(UUID accountId, int shardCount, BigDecimal amount) {
+        int shardNo = ThreadLocalRandom.current().nextInt(shardCount);
+        if (!accountShardRepository.creditShard(accountId, shardNo, amount)) {
+            accountLockService.guardImplicitLock(accountId, () -> accountBalanceRepository.credit(accountId, amount))
+                    .orElseThrow(() -> new RecordNotFoundException("Account not found"));
+        }
+    }
+
+    // caller must hold the account row lock
+    public void consolidate(Account lockedAccount) {
+        BigDecimal swept = accountShardRepository.sweepShards(lockedAccount.getId());
+        if (swept.signum() != 0) {
+            lockedAccount.setBalance(lockedAccount.getBalance().add(swept));
+        }
+    }
+
+    @Transactional
+    public void consolidate(UUID accountId) {
+        accountShardRepository.sweepShardsIntoAccount(accountId);
+    }
+
+    // what the account holder sees: credits still sitting in the shards are part of the balance
+    public BigDecimal totalBalance(Account account) {
+        if (!account.isHot()) {
+            return account.getBalance();
+        }
+        return account.getBalance().add(accountShardRepository.getShardBalance(account.getId()));
+    }
+
+    public List<UUID> findHotAccountIds() {
+        return accountShardRepository.findHotAccountIds();
+    }
+}
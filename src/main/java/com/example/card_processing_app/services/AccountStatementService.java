@@ -0,0 +1,97 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.dto.BalanceMovements;
+import com.example.card_processing_app.dto.response.AccountStatementResponseDto;
+import com.example.card_processing_app.entities.User;
+import com.example.card_processing_app.repositories.AccountDailyBalanceRepository;
+import com.example.card_processing_app.repositories.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+// Statements read the daily snapshots for every day up to the watermark and the ledger only for the days after it
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class AccountStatementService {
+    private final AccountDailyBalanceRepository accountDailyBalanceRepository;
+    private final AccountRepository accountRepository;
+
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public Optional<LocalDate> nextPendingSnapshotDay() {
+        return accountDailyBalanceRepository.findWatermark()
+                .map(day -> day.plusDays(1))
+                .or(accountDailyBalanceRepository::findFirstTransactionDate);
+    }
+
+    @Transactional
+    public void snapshotDay(LocalDate day) {
+        int accounts = accountDailyBalanceRepository.snapshotDay(day);
+        accountDailyBalanceRepository.advanceWatermark(day);
+        log.info("Daily balances for {} snapshotted: {} accounts", day, accounts);
+    }
+
+    // repeatable read so the watermark, snapshots and ledger tail are read from one snapshot
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public AccountStatementResponseDto getStatement(UUID accountId, LocalDate from, LocalDate to, User user) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Statement 'from' must not be after 'to'");
+        }
+        if (!user.hasRole("ADMIN") && !accountRepository.existsByIdAndUserId(accountId, user.getId())) {
+            throw new AccessDeniedException("Ownership validation failed: You can only access your own accounts");
+        }
+
+        Optional<LocalDate> watermark = accountDailyBalanceRepository.findWatermark();
+        BigDecimal opening = balanceAtStartOf(accountId, from, watermark);
+        BalanceMovements movements = movementsBetween(accountId, from, to, watermark);
+
+        return new AccountStatementResponseDto(
+                accountId,
+                from,
+                to,
+                opening,
+                opening.add(movements.net()),
+                movements.debitTotal(),
+                movements.creditTotal(),
+                movements.debitCount(),
+                movements.creditCount()
+        );
+    }
+
+    private BigDecimal balanceAtStartOf(UUID accountId, LocalDate day, Optional<LocalDate> watermark) {
+        if (watermark.isEmpty()) {
+            return accountDailyBalanceRepository.sumLedger(accountId, LEDGER_START, day.atStartOfDay()).net();
+        }
+
+        LocalDate firstUncovered = watermark.get().plusDays(1);
+        if (!day.isAfter(firstUncovered)) {
+            return accountDailyBalanceRepository.findClosingBalanceBefore(accountId, day);
+        }
+        return accountDailyBalanceRepository.findClosingBalanceBefore(accountId, firstUncovered)
+                .add(accountDailyBalanceRepository.sumLedger(accountId, firstUncovered.atStartOfDay(), day.atStartOfDay()).net());
+    }
+
+    private BalanceMovements movementsBetween(UUID accountId, LocalDate from, LocalDate to, Optional<LocalDate> watermark) {
+        LocalDateTime periodEnd = to.plusDays(1).atStartOfDay();
+        if (watermark.isEmpty() || from.isAfter(watermark.get())) {
+            return accountDailyBalanceRepository.sumLedger(accountId, from.atStartOfDay(), periodEnd);
+        }
+
+        LocalDate lastCovered = watermark.get();
+        if (!to.isAfter(lastCovered)) {
+            return accountDailyBalanceRepository.sumSnapshots(accountId, from, to);
+        }
+        return accountDailyBalanceRepository.sumSnapshots(accountId, from, lastCovered)
+                .plus(accountDailyBalanceRepository.sumLedger(accountId, lastCovered.plusDays(1).atStartOfDay(), periodEnd));
+    }
+}
@@ -31,6 +31,7 @@ public class CardService {
     private final GeneratorService generatorService;
     private final CardRepository cardRepository;
     private final AccountService accountService;
+    private final AccountShardService accountShardService;
     private final CommonSchemaValidator commonSchemaValidator;
 
     @Transactional
@@ -69,7 +70,7 @@ public class CardService {
 
         List<Card> cards = cardRepository.findAllByUserIdWithAccount(user.getId());
         return cards.stream()
-                .map(CardMapper::toDto)
+                .map(card -> CardMapper.toDto(card, accountShardService.totalBalance(card.getAccount())))
                 .toList();
     }
 
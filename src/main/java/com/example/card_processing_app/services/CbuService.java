@@ -5,13 +5,21 @@ import com.example.card_processing_app.enums.CurrencyType;
 import com.example.card_processing_app.exception.InvalidCurrencyTypeException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Log4j2
 @Service
@@ -21,25 +29,60 @@ public class CbuService {
 
     private static final String CBU_URL = "https://cbu.uz/uz/arkhiv-kursov-valyut/json/";
 
+    private final AtomicReference<RateSnapshot> snapshot = new AtomicReference<>();
+
+    @Value("${app.cbu.max-staleness-minutes:360}")
+    private long maxStalenessMinutes;
+
     public BigDecimal getExchangeRate(CurrencyType fromCurrency, CurrencyType toCurrency) {
         if (fromCurrency == toCurrency) return BigDecimal.ONE;
 
+        RateSnapshot rates = currentSnapshot();
+
         BigDecimal fromRateInUzs = (fromCurrency == CurrencyType.UZS)
                 ? BigDecimal.ONE
-                : getRateInUzs(fromCurrency);
+                : rates.rateInUzs(fromCurrency);
 
         BigDecimal toRateInUzs = (toCurrency == CurrencyType.UZS)
                 ? BigDecimal.ONE
-                : getRateInUzs(toCurrency);
+                : rates.rateInUzs(toCurrency);
 
         BigDecimal rate = fromRateInUzs.divide(toRateInUzs, 10, RoundingMode.HALF_UP);
 
-        log.info("Cross-rate calculation: 1 {} = {} {}", fromCurrency, rate, toCurrency);
+        log.debug("Cross-rate calculation: 1 {} = {} {}", fromCurrency, rate, toCurrency);
         return rate;
     }
 
-    private BigDecimal getRateInUzs(CurrencyType currency) {
-        log.info("Fetching {} rate in UZS from CBU", currency);
+    // a failed refresh keeps the last known snapshot; readers reject it only once it is older than the staleness limit.
+    // Without an initial delay the first run happens at startup, the only place a first snapshot is fetched
+    @Scheduled(fixedDelayString = "${app.cbu.refresh-interval-ms:600000}")
+    public void refreshRates() {
+        try {
+            snapshot.set(fetchSnapshot());
+        } catch (RuntimeException e) {
+            log.error("Currency rates refresh failed, keeping snapshot from {}", fetchedAt(), e);
+        }
+    }
+
+    private RateSnapshot currentSnapshot() {
+        RateSnapshot current = snapshot.get();
+
+        // no fetch on the request path: every transfer thread would call CBU itself until one succeeded
+        if (current == null) {
+            log.error("Currency rates are not loaded yet");
+            throw new IllegalStateException("Currency rates are temporarily unavailable");
+        }
+
+        if (current.fetchedAt().plus(Duration.ofMinutes(maxStalenessMinutes)).isBefore(Instant.now())) {
+            log.error("Currency rates are stale, last successful refresh at {}", current.fetchedAt());
+            throw new IllegalStateException("Currency rates are temporarily unavailable");
+        }
+
+        return current;
+    }
+
+    private RateSnapshot fetchSnapshot() {
+        log.info("Fetching currency rates in UZS from CBU");
 
         try {
             ResponseEntity<CbuCurrencyResponse[]> response =
@@ -50,23 +93,46 @@ public class CbuService {
                 throw new IllegalStateException("Unable to fetch currency rates from CBU");
             }
 
-            CbuCurrencyResponse[] rates = response.getBody();
+            Map<CurrencyType, BigDecimal> rates = new EnumMap<>(CurrencyType.class);
 
-            for (CbuCurrencyResponse rate : rates) {
-                if (rate.ccy() != null && rate.ccy().equals(currency.name())) {
-                    BigDecimal result = rate.rate()
-                            .divide(BigDecimal.valueOf(rate.nominal()), 10, RoundingMode.HALF_UP);
-                    log.info("CBU rate for {}: {}", currency, result);
-                    return result;
+            for (CbuCurrencyResponse rate : response.getBody()) {
+                CurrencyType currency = toCurrencyType(rate.ccy());
+                if (currency != null && currency != CurrencyType.UZS) {
+                    rates.put(currency, rate.rate()
+                            .divide(BigDecimal.valueOf(rate.nominal()), 10, RoundingMode.HALF_UP));
                 }
             }
 
-            log.warn("Currency {} not found in CBU rates", currency);
-            throw new InvalidCurrencyTypeException("Currency not found in CBU rates: " + currency);
+            log.info("CBU rates loaded: {}", rates);
+            return new RateSnapshot(Collections.unmodifiableMap(rates), Instant.now());
 
         } catch (RestClientException e) {
             log.error("CBU service unavailable", e);
             throw new IllegalStateException("Currency service temporarily unavailable", e);
         }
     }
+
+    private CurrencyType toCurrencyType(String ccy) {
+        for (CurrencyType currency : CurrencyType.values()) {
+            if (currency.name().equals(ccy)) {
+                return currency;
+            }
+        }
+        return null;
+    }
+
+    private Instant fetchedAt() {
+        RateSnapshot current = snapshot.get();
+        return current != null ? current.fetchedAt() : null;
+    }
+
+    private record RateSnapshot(Map<CurrencyType, BigDecimal> ratesInUzs, Instant fetchedAt) {
+        BigDecimal rateInUzs(CurrencyType currency) {
+            BigDecimal rate = ratesInUzs.get(currency);
+            if (rate == null) {
+                throw new InvalidCurrencyTypeException("Currency not found in CBU rates: " + currency);
+            }
+            return rate;
+        }
+    }
 }
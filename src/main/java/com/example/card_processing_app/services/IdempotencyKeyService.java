@@ -1,49 +1,100 @@
 package com.example.card_processing_app.services;
 
+import com.example.card_processing_app.components.IdempotencyPayloadSerializer;
 import com.example.card_processing_app.dto.IdempotencyResult;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
 public class IdempotencyKeyService {
     private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final IdempotencyPayloadSerializer payloadSerializer;
     private static final String PREFIX = "idempotency:";
+    private static final byte[] PROCESSING = "PROCESSING".getBytes(StandardCharsets.UTF_8);
+
+    // stored values are binary, so script arguments and the looked up value bypass the string serializer
+    private static final RedisSerializer<byte[]> BINARY = RedisSerializer.byteArray();
+    private static final RedisSerializer<Long> LONG_RESULT = new GenericToStringSerializer<>(Long.class);
+
+    // scripts are built once so their SHA is computed once; RedisTemplate runs them with EVALSHA
+    static final RedisScript<byte[]> CHECK_AND_LOCK_SCRIPT = RedisScript.of(
+            "local val = redis.call('get', KEYS[1]) " +
+                    "if val then return val end " +
+                    "redis.call('setex', KEYS[1], ARGV[1], 'PROCESSING') " +
+                    "return nil",
+            byte[].class);
+
+    // stores the response and extends the TTL in one round trip; never overwrites an already completed value
+    static final RedisScript<Long> COMPLETE_AND_EXTEND_SCRIPT = RedisScript.of(
+            "local val = redis.call('get', KEYS[1]) " +
+                    "if val and val ~= 'PROCESSING' then return 0 end " +
+                    "redis.call('setex', KEYS[1], ARGV[2], ARGV[1]) " +
+                    "return 1",
+            Long.class);
+
+    // releases only our own lock, a completed result is left untouched
+    static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == 'PROCESSING' then " +
+                    "return redis.call('del', KEYS[1]) end " +
+                    "return 0",
+            Long.class);
+
+    private static final List<RedisScript<?>> SCRIPTS =
+            List.of(CHECK_AND_LOCK_SCRIPT, COMPLETE_AND_EXTEND_SCRIPT, RELEASE_SCRIPT);
 
     @Value("${app.idempotency.ttl-in-hours:24}")
     private int ttlInHours;
 
+    @Value("${app.idempotency.lock-ttl-seconds:300}")
+    private int lockTtlSeconds;
+
+    // without this the first EVALSHA of every script after a Redis restart falls back to a full EVAL
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadScripts() {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                loadScripts(connection);
+                return null;
+            });
+            log.info("Idempotency scripts loaded into Redis");
+        } catch (Exception e) {
+            log.warn("Could not preload idempotency scripts, they will be loaded on first use", e);
+        }
+    }
+
     public IdempotencyResult checkAndLock(String key) {
-        String fullKey = PREFIX + key;
-
-        String script =
-                "local val = redis.call('get', KEYS[1]) " +
-                        "if val then return val end " +
-                        "redis.call('setex', KEYS[1], ARGV[1], 'PROCESSING') " +
-                        "return nil";
-
-        String result = redisTemplate.execute(
-                new DefaultRedisScript<>(script, String.class),
-                Collections.singletonList(fullKey),
-                "300"
+        byte[] result = redisTemplate.execute(
+                CHECK_AND_LOCK_SCRIPT,
+                BINARY,
+                BINARY,
+                Collections.singletonList(PREFIX + key),
+                bytes(lockTtlSeconds)
         );
 
         if (result == null) {
             return IdempotencyResult.newRequest();
         }
 
-        if ("PROCESSING".equals(result)) {
+        if (Arrays.equals(PROCESSING, result)) {
             return IdempotencyResult.processing();
         }
 
@@ -52,19 +103,32 @@ public class IdempotencyKeyService {
 
     public void markAsComplete(String key, Object response) {
         try {
-            String jsonResponse = objectMapper.writeValueAsString(response);
+            byte[] payload = payloadSerializer.serialize(response);
 
-            redisTemplate.opsForValue().set(
-                    PREFIX + key,
-                    jsonResponse,
-                    Duration.ofHours(ttlInHours)
+            redisTemplate.execute(
+                    COMPLETE_AND_EXTEND_SCRIPT,
+                    BINARY,
+                    LONG_RESULT,
+                    Collections.singletonList(PREFIX + key),
+                    payload,
+                    bytes(Duration.ofHours(ttlInHours).toSeconds())
             );
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             log.error("Idempotency serialization error for key: {}", key, e);
         }
     }
 
     public void deleteKey(String key) {
-        redisTemplate.delete(PREFIX + key);
+        redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(PREFIX + key));
+    }
+
+    private byte[] bytes(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void loadScripts(RedisConnection connection) {
+        for (RedisScript<?> script : SCRIPTS) {
+            connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+        }
     }
 }
@@ -0,0 +1,130 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.dto.HistoryWindow;
+import com.example.card_processing_app.dto.response.TransactionResponseDto;
+import com.example.card_processing_app.entities.User;
+import com.example.card_processing_app.enums.ExportFormat;
+import com.example.card_processing_app.repositories.CardRepository;
+import com.example.card_processing_app.repositories.TransactionHistoryRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Statement export: rows go from the database cursor to the response one at a time, memory use does not
+// depend on the size of the history
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final CardRepository cardRepository;
+    private final ObjectMapper objectMapper;
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+    private static final String CSV_HEADER =
+            "transaction_id,external_id,card_id,after_balance,amount,currency,purpose,type,status,created_at,description";
+
+    @Value("${app.transactions.export.default-window-days:365}")
+    private int defaultWindowDays;
+
+    @Value("${app.transactions.export.max-window-days:3660}")
+    private int maxWindowDays;
+
+    public StreamingResponseBody export(UUID cardId, LocalDateTime from, LocalDateTime to, ExportFormat format, User user) {
+        if (!user.hasRole("ADMIN") && !cardRepository.existsByIdAndAccountUserId(cardId, user.getId())) {
+            throw new AccessDeniedException("Ownership validation failed: You can only access your own cards");
+        }
+        HistoryWindow window = HistoryWindow.resolve(from, to, defaultWindowDays, maxWindowDays);
+
+        return out -> {
+            long rows = switch (format) {
+                case NDJSON -> writeNdjson(cardId, window, out);
+                case CSV -> writeCsv(cardId, window, out);
+            };
+            log.info("Exported {} transactions of card {} as {}", rows, cardId, format);
+        };
+    }
+
+    // the servlet stream is flushed but never closed here, Spring completes the response
+    private long writeNdjson(UUID cardId, HistoryWindow window, OutputStream out) throws IOException {
+        long[] rows = {0};
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        transactionHistoryRepository.forEachInWindow(cardId, window.from(), window.to(), dto -> {
+            rowWriter.writeValue(generator, dto);
+            generator.writeRaw('\n');
+            if (++rows[0] % FLUSH_EVERY_ROWS == 0) {
+                generator.flush();
+            }
+        });
+        generator.flush();
+        return rows[0];
+    }
+
+    private long writeCsv(UUID cardId, HistoryWindow window, OutputStream out) throws IOException {
+        long[] rows = {0};
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        transactionHistoryRepository.forEachInWindow(cardId, window.from(), window.to(), dto -> {
+            writeCsvRow(writer, dto);
+            if (++rows[0] % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        });
+        writer.flush();
+        return rows[0];
+    }
+
+    private void writeCsvRow(Writer writer, TransactionResponseDto dto) throws IOException {
+        writer.write(String.valueOf(dto.transactionId()));
+        writer.write(',');
+        writer.write(csvText(dto.externalId()));
+        writer.write(',');
+        writer.write(String.valueOf(dto.cardId()));
+        writer.write(',');
+        writer.write(dto.afterBalance() == null ? "" : dto.afterBalance().toPlainString());
+        writer.write(',');
+        writer.write(dto.amount().toPlainString());
+        writer.write(',');
+        writer.write(dto.currency().name());
+        writer.write(',');
+        writer.write(dto.purpose().name());
+        writer.write(',');
+        writer.write(dto.type().name());
+        writer.write(',');
+        writer.write(dto.status().name());
+        writer.write(',');
+        writer.write(dto.createdAt().toString());
+        writer.write(',');
+        writer.write(csvText(dto.description()));
+        writer.write('\n');
+    }
+
+    private String csvText(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
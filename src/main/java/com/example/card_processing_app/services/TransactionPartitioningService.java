@@ -1,14 +1,32 @@
 package com.example.card_processing_app.services;
 
+import com.example.card_processing_app.dto.TransactionPartition;
+import com.example.card_processing_app.enums.PartitionArchiveMode;
+import com.example.card_processing_app.enums.PartitionGranularity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 @Log4j2
 @Service
@@ -16,47 +34,252 @@ import java.time.temporal.ChronoUnit;
 public class TransactionPartitioningService {
     private final JdbcTemplate jdbcTemplate;
 
+    private static final String DEFAULT_PARTITION = "transactions_default";
+    private static final Pattern RANGE_BOUND = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                    "JOIN pg_class c ON c.oid = i.inhrelid " +
+                    "WHERE i.inhparent = 'transactions'::regclass";
+
+    // initialised for callers that construct the service without Spring
+    @Value("${app.transactions.partitions.granularity:MONTHLY}")
+    private PartitionGranularity granularity = PartitionGranularity.MONTHLY;
+
+    @Value("${app.transactions.partitions.future-horizon:P3M}")
+    private Period futureHorizon;
+
+    @Value("${app.transactions.partitions.retention:P0D}")
+    private Period retention;
+
+    @Value("${app.transactions.partitions.archive.mode:NONE}")
+    private PartitionArchiveMode archiveMode;
+
+    @Value("${app.transactions.partitions.archive.schema:transactions_archive}")
+    private String archiveSchema;
+
+    @Value("${app.transactions.partitions.archive.directory:archive}")
+    private Path archiveDirectory;
+
+    // created ranges never overlap an existing partition, so partitions of a previous granularity keep serving
+    // their range and the configured granularity takes over where they end
     @Transactional
     public void createPartitionIfNotExist(LocalDateTime date) {
-        String partitionName = String.format("transactions_%d_%02d",
-                date.getYear(), date.getMonthValue());
+        createPartitions(granularity.periodStart(date), findPartitions());
+    }
 
-        LocalDateTime startOfMonth = date.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
-        LocalDateTime startOfNextMonth = startOfMonth.plusMonths(1);
+    // every period from the current one up to now + future-horizon gets its partition before any row needs it
+    public void ensureFutureHorizon() {
+        List<TransactionPartition> existing = findPartitions();
+        LocalDateTime period = granularity.periodStart(LocalDateTime.now());
+        LocalDateTime horizon = LocalDateTime.now().plus(futureHorizon);
 
-        String sql = String.format(
-                "CREATE TABLE IF NOT EXISTS %s PARTITION OF transactions " +
-                        "FOR VALUES FROM ('%s') TO ('%s')",
-                partitionName, startOfMonth, startOfNextMonth
-        );
+        for (; !period.isAfter(horizon); period = granularity.next(period)) {
+            createPartitions(period, existing);
+        }
+    }
 
-        try {
-            jdbcTemplate.execute(sql);
-            log.info("Partition created: {}", partitionName);
-        } catch (Exception e) {
-            log.error("Error creating partition: {}", partitionName, e);
+    // partitions created ahead under another granularity; once dropped ensureFutureHorizon recreates their
+    // range with the configured one. Partitions that already started are left alone and age out via retention.
+    // Gap partitions filling the space up to a started neighbour are misaligned too, but with all candidates
+    // gone they are exactly what would be recreated, so they are kept instead of churning on every run
+    public List<TransactionPartition> findMisalignedFuturePartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TransactionPartition> partitions = findPartitions();
+        List<TransactionPartition> misaligned = partitions.stream()
+                .filter(partition -> partition.from().isAfter(now))
+                .filter(partition -> !granularity.isAligned(partition.from(), partition.to()))
+                .toList();
+        List<TransactionPartition> remaining = partitions.stream()
+                .filter(partition -> !misaligned.contains(partition))
+                .toList();
+        return misaligned.stream()
+                .filter(partition -> !isRecreatedAsIs(partition, remaining))
+                .toList();
+    }
+
+    @Transactional
+    public boolean dropIfEmpty(TransactionPartition partition) {
+        jdbcTemplate.execute("LOCK TABLE " + partition.name() + " IN ACCESS EXCLUSIVE MODE");
+        Boolean hasRows = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition.name() + ")", Boolean.class);
+        if (Boolean.TRUE.equals(hasRows)) {
+            log.warn("Partition {} is not empty, keeping it", partition.name());
+            return false;
         }
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+        log.info("Dropped empty partition {} to recreate its range as {}", partition.name(), granularity);
+        return true;
+    }
+
+    public List<TransactionPartition> findPartitions() {
+        List<TransactionPartition> partitions = new ArrayList<>();
+        jdbcTemplate.query(PARTITIONS_SQL, rs -> {
+            Matcher bound = RANGE_BOUND.matcher(rs.getString(2));
+            if (bound.find()) {
+                partitions.add(new TransactionPartition(
+                        rs.getString(1),
+                        Timestamp.valueOf(bound.group(1)).toLocalDateTime(),
+                        Timestamp.valueOf(bound.group(2)).toLocalDateTime()
+                ));
+            }
+        });
+        partitions.sort(Comparator.comparing(TransactionPartition::from));
+        return partitions;
     }
 
-    public void createNextMonthPartitionIfNotExist() {
-        LocalDate nextMonth = LocalDate.now().plusMonths(1).withDayOfMonth(1);
+    // periods that currently have rows in the default partition, i.e. rows written while their partition was missing
+    public List<LocalDateTime> findPeriodsInDefaultPartition() {
+        return jdbcTemplate.queryForList(
+                        "SELECT DISTINCT date_trunc('" + granularity.getTruncUnit() + "', created_at) FROM " + DEFAULT_PARTITION,
+                        Timestamp.class)
+                .stream()
+                .map(Timestamp::toLocalDateTime)
+                .sorted()
+                .toList();
+    }
 
-        String partitionName = String.format("transactions_%d_%02d",
-                nextMonth.getYear(), nextMonth.getMonthValue());
+    // a partition cannot be created while the default partition holds rows of its range, so the rows are moved
+    // into a plain table which is then attached; blocks writes to the default partition until commit
+    @Transactional
+    public void moveOutOfDefaultPartition(LocalDateTime periodStart) {
+        jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN ACCESS EXCLUSIVE MODE");
 
-        LocalDate endOfNextMonth = nextMonth.plusMonths(1);
+        for (TransactionPartition partition : missingPartitions(periodStart, findPartitions())) {
+            jdbcTemplate.execute("CREATE TABLE " + partition.name() + " (LIKE transactions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update(
+                    "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ? RETURNING *) " +
+                            "INSERT INTO " + partition.name() + " SELECT * FROM moved",
+                    Timestamp.valueOf(partition.from()), Timestamp.valueOf(partition.to()));
+            jdbcTemplate.execute(String.format(
+                    "ALTER TABLE transactions ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                    partition.name(), partition.from(), partition.to()));
 
+            log.info("Moved {} rows from {} into new partition {}", moved, DEFAULT_PARTITION, partition.name());
+        }
+    }
+
+    // partitions that ended before now - retention, but never beyond what the caller says is safe to remove
+    public List<TransactionPartition> findExpiredPartitions(LocalDateTime notAfter) {
+        if (archiveMode == PartitionArchiveMode.NONE || retention.isZero()) {
+            return List.of();
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        LocalDateTime limit = cutoff.isBefore(notAfter) ? cutoff : notAfter;
+
+        return findPartitions().stream()
+                .filter(partition -> !partition.to().isAfter(limit))
+                .toList();
+    }
+
+    @Transactional
+    public void archivePartition(TransactionPartition partition) {
+        jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + partition.name());
+
+        switch (archiveMode) {
+            case TABLE -> moveToArchiveSchema(partition);
+            case FILE -> exportAndDrop(partition);
+            case NONE -> throw new IllegalStateException("Partition archiving is disabled");
+        }
+    }
+
+    private void moveToArchiveSchema(TransactionPartition partition) {
+        String schema = identifier(archiveSchema);
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+        jdbcTemplate.execute("ALTER TABLE " + partition.name() + " SET SCHEMA " + schema);
+        log.info("Partition {} detached and moved to schema {}", partition.name(), schema);
+    }
+
+    // written to a temporary file first so a half-written archive never replaces a good one
+    private void exportAndDrop(TransactionPartition partition) {
+        Path target = archiveDirectory.resolve(partition.name() + ".csv.gz");
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                Files.createDirectories(archiveDirectory);
+                Path temp = Files.createTempFile(archiveDirectory, partition.name(), ".tmp");
+                long copied;
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                    copied = connection.unwrap(PGConnection.class)
+                            .getCopyAPI()
+                            .copyOut("COPY " + partition.name() + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return copied;
+            } catch (IOException e) {
+                throw new SQLException("Archiving partition " + partition.name() + " failed", e);
+            }
+        });
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+        log.info("Partition {} archived to {} ({} rows) and dropped", partition.name(), target, rows);
+    }
+
+    private void createPartitions(LocalDateTime periodStart, List<TransactionPartition> existing) {
+        for (TransactionPartition partition : missingPartitions(periodStart, existing)) {
+            createPartition(partition);
+        }
+    }
+
+    private void createPartition(TransactionPartition partition) {
         String sql = String.format(
                 "CREATE TABLE IF NOT EXISTS %s PARTITION OF transactions " +
                         "FOR VALUES FROM ('%s') TO ('%s')",
-                partitionName, nextMonth, endOfNextMonth
+                partition.name(), partition.from(), partition.to()
         );
 
         try {
             jdbcTemplate.execute(sql);
-            log.info("Partitioning successfully checked/created for: {}", partitionName);
+            log.info("Partition created: {}", partition.name());
         } catch (Exception e) {
-            log.error("Critical error during partitioning: ", e);
+            log.error("Error creating partition: {}", partition.name(), e);
+        }
+    }
+
+    // the parts of a period not yet covered by an existing partition (sorted by start). All granularities are
+    // day aligned, so a gap that starts inside the period is named after its first day to keep names unique
+    private List<TransactionPartition> missingPartitions(LocalDateTime periodStart, List<TransactionPartition> existing) {
+        LocalDateTime periodEnd = granularity.next(periodStart);
+        List<TransactionPartition> missing = new ArrayList<>();
+        LocalDateTime cursor = periodStart;
+
+        for (TransactionPartition partition : existing) {
+            if (!cursor.isBefore(periodEnd) || !partition.from().isBefore(periodEnd)) {
+                break;
+            }
+            if (!partition.to().isAfter(cursor)) {
+                continue;
+            }
+            if (partition.from().isAfter(cursor)) {
+                missing.add(gap(periodStart, cursor, partition.from()));
+            }
+            cursor = partition.to();
+        }
+        if (cursor.isBefore(periodEnd)) {
+            missing.add(gap(periodStart, cursor, periodEnd));
+        }
+        return missing;
+    }
+
+    private boolean isRecreatedAsIs(TransactionPartition partition, List<TransactionPartition> remaining) {
+        List<TransactionPartition> recreated = new ArrayList<>();
+        for (LocalDateTime period = granularity.periodStart(partition.from());
+             period.isBefore(partition.to());
+             period = granularity.next(period)) {
+            recreated.addAll(missingPartitions(period, remaining));
+        }
+        return recreated.stream().anyMatch(gap -> gap.from().equals(partition.from()) && gap.to().equals(partition.to()));
+    }
+
+    private TransactionPartition gap(LocalDateTime periodStart, LocalDateTime from, LocalDateTime to) {
+        String name = from.equals(periodStart)
+                ? granularity.partitionName(periodStart)
+                : PartitionGranularity.DAILY.partitionName(from);
+        return new TransactionPartition(name, from, to);
+    }
+
+    private String identifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalStateException("Invalid archive schema name: " + name);
         }
+        return name;
     }
 }
@@ -1,154 +1,248 @@
 package com.example.card_processing_app.services;
 
+import com.example.card_processing_app.components.TransferMetrics;
+import com.example.card_processing_app.components.TransferPipeline;
+import com.example.card_processing_app.components.TransferRetryPolicy;
+import com.example.card_processing_app.components.TransferTrace;
+import com.example.card_processing_app.dto.HistoryCursor;
+import com.example.card_processing_app.dto.HistoryWindow;
+import com.example.card_processing_app.dto.TransferCardView;
+import com.example.card_processing_app.dto.TransferOutcome;
+import com.example.card_processing_app.dto.TransferQuote;
+import com.example.card_processing_app.dto.request.BatchP2PRequest;
 import com.example.card_processing_app.dto.request.P2PRequest;
+import com.example.card_processing_app.dto.response.BatchP2PItemResultDto;
+import com.example.card_processing_app.dto.response.BatchP2PResponseDto;
+import com.example.card_processing_app.dto.response.CursorPageResponseDto;
 import com.example.card_processing_app.dto.response.TransactionResponseDto;
-import com.example.card_processing_app.entities.Account;
-import com.example.card_processing_app.entities.Card;
-import com.example.card_processing_app.entities.Transaction;
 import com.example.card_processing_app.entities.User;
+import com.example.card_processing_app.enums.AccountStatus;
+import com.example.card_processing_app.enums.CardStatus;
 import com.example.card_processing_app.enums.TransactionStatus;
-import com.example.card_processing_app.enums.TransactionType;
-import com.example.card_processing_app.exception.InsufficientFundsException;
+import com.example.card_processing_app.enums.TransferStage;
+import com.example.card_processing_app.exception.CardNotActiveException;
 import com.example.card_processing_app.exception.RecordNotFoundException;
-import com.example.card_processing_app.mapper.TransactionMapper;
-import com.example.card_processing_app.repositories.AccountRepository;
 import com.example.card_processing_app.repositories.CardRepository;
-import com.example.card_processing_app.repositories.TransactionRepository;
+import com.example.card_processing_app.repositories.TransactionHistoryRepository;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
-    private final TransactionRepository transactionRepository;
+    private final TransactionHistoryRepository transactionHistoryRepository;
     private final CardRepository cardRepository;
-    private final AccountRepository accountRepository;
     private final CbuService cbuService;
+    private final TransferExecutionService transferExecutionService;
+    private final TransferMetrics transferMetrics;
+    private final TransferPipeline transferPipeline;
+    private final TransferRetryPolicy transferRetryPolicy;
 
-    @Transactional
-    public void executeP2P(P2PRequest request, String idempotencyKey) {
-        Card senderCard = cardRepository.findById(request.senderCardId())
-                .orElseThrow(() -> new RecordNotFoundException("Sender card not found"));
-        Card receiverCard = cardRepository.findById(request.receiverCardId())
-                .orElseThrow(() -> new RecordNotFoundException("Receiver card not found"));
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
-        UUID senderAccId = senderCard.getAccount().getId();
-        UUID receiverAccId = receiverCard.getAccount().getId();
-        UUID refId = UUID.randomUUID();
+    @Value("${app.transactions.history.default-window-days:90}")
+    private int defaultHistoryWindowDays;
 
-        List<Transaction> transactions = prepareInitialTransactions(senderCard, receiverCard, request, idempotencyKey, refId);
+    @Value("${app.transactions.history.max-window-days:366}")
+    private int maxHistoryWindowDays;
 
-        try {
-            BigDecimal exchangeRate = cbuService.getExchangeRate(senderCard.getCurrency(), receiverCard.getCurrency());
-            BigDecimal amountInSenderCurrency = request.amount();
-            BigDecimal amountInReceiverCurrency = request.amount().multiply(exchangeRate).setScale(2, RoundingMode.HALF_UP);
-
-            if (senderAccId.equals(receiverAccId)) {
-                handleInternalTransaction(senderAccId, amountInSenderCurrency, amountInReceiverCurrency, transactions);
-            } else {
-                handleExternalTransaction(senderAccId, receiverAccId, amountInSenderCurrency, amountInReceiverCurrency, transactions);
-            }
+    // deliberately not @Transactional: no connection or row lock is held while the quote is prepared
+    public void executeP2P(P2PRequest request, String idempotencyKey) {
+        TransferTrace trace = TransferTrace.current();
+        trace.markTransfer();
 
-            updateTransactionStatus(transactions, TransactionStatus.COMPLETED);
+        Timer.Sample preflight = transferMetrics.start();
+        TransferQuote quote = prepareQuote(request, idempotencyKey);
+        transferMetrics.recordPreflight(preflight);
+        trace.route(quote.senderCurrency(), quote.receiverCurrency(), quote.isInternal());
 
-        } catch (Exception e) {
-            updateTransactionStatus(transactions, TransactionStatus.FAILED);
-            throw e;
+        if (transferPipeline.isEnabled()) {
+            try (TransferTrace.Stage ignored = trace.enter(TransferStage.PIPELINE_WAIT)) {
+                transferPipeline.execute(quote);
+            }
+            return;
         }
-    }
 
-    private void handleExternalTransaction(UUID sAccId, UUID rAccId, BigDecimal sAmount, BigDecimal rAmount, List<Transaction> txs) {
-        UUID firstId = sAccId.compareTo(rAccId) < 0 ? sAccId : rAccId;
-        UUID secondId = firstId.equals(sAccId) ? rAccId : sAccId;
-
-        Account firstAcc = accountRepository.findByIdWithLock(firstId).orElseThrow(() -> new RecordNotFoundException("Account not found"));
-        Account secondAcc = accountRepository.findByIdWithLock(secondId).orElseThrow(() -> new RecordNotFoundException("Account not found"));
+        // the hold covers every attempt, the backoff between them included
+        Timer.Sample hold = transferMetrics.start();
+        try {
+            transferRetryPolicy.run(() -> transferExecutionService.execute(quote));
+        } finally {
+            transferMetrics.recordTransactionHold(hold);
+        }
+    }
 
-        Account senderAcc = firstAcc.getId().equals(sAccId) ? firstAcc : secondAcc;
-        Account receiverAcc = firstAcc.getId().equals(rAccId) ? firstAcc : secondAcc;
+    // each item gets its own ledger idempotency key derived from the batch key and its position
+    public BatchP2PResponseDto executeBatchP2P(BatchP2PRequest request, String idempotencyKey) {
+        List<P2PRequest> items = request.transfers();
+
+        Set<UUID> cardIds = new HashSet<>();
+        items.forEach(item -> {
+            cardIds.add(item.senderCardId());
+            cardIds.add(item.receiverCardId());
+        });
+        Map<UUID, TransferCardView> cards = findTransferViews(cardIds);
+
+        BatchP2PItemResultDto[] results = new BatchP2PItemResultDto[items.size()];
+        List<TransferQuote> quotes = new ArrayList<>(items.size());
+        List<Integer> quotedIndexes = new ArrayList<>(items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            P2PRequest item = items.get(i);
+            try {
+                quotes.add(toQuote(item, cards, idempotencyKey + ":" + i));
+                quotedIndexes.add(i);
+            } catch (RuntimeException e) {
+                results[i] = new BatchP2PItemResultDto(i, item.externalId(), null, TransactionStatus.FAILED, e.getMessage());
+            }
+        }
 
-        if (senderAcc.getBalance().compareTo(sAmount) < 0) {
-            throw new InsufficientFundsException("Insufficient funds on sender account");
+        if (!quotes.isEmpty()) {
+            List<TransferOutcome> outcomes = transferRetryPolicy.execute(() -> transferExecutionService.executeBatch(quotes));
+            for (int q = 0; q < outcomes.size(); q++) {
+                int i = quotedIndexes.get(q);
+                TransferOutcome outcome = outcomes.get(q);
+                results[i] = new BatchP2PItemResultDto(i, items.get(i).externalId(), outcome.referenceId(), outcome.status(), outcome.failureReason());
+            }
         }
 
-        BigDecimal sBefore = senderAcc.getBalance();
-        BigDecimal rBefore = receiverAcc.getBalance();
+        List<BatchP2PItemResultDto> resultList = List.of(results);
+        int completed = (int) resultList.stream().filter(r -> r.status() == TransactionStatus.COMPLETED).count();
+        log.info("Batch {} processed: {} completed, {} failed", idempotencyKey, completed, resultList.size() - completed);
+        transferMetrics.recordBatchCompleted(completed);
 
-        senderAcc.setBalance(sBefore.subtract(sAmount));
-        receiverAcc.setBalance(rBefore.add(rAmount));
+        return new BatchP2PResponseDto(completed, resultList.size() - completed, resultList);
+    }
 
-        finalizeTransactionBalances(txs, sBefore, rBefore, sAmount, rAmount);
+    private TransferQuote prepareQuote(P2PRequest request, String idempotencyKey) {
+        Map<UUID, TransferCardView> cards;
+        try (TransferTrace.Stage ignored = TransferTrace.current().enter(TransferStage.CARD_LOOKUP)) {
+            cards = findTransferViews(List.of(request.senderCardId(), request.receiverCardId()));
+        }
+        return toQuote(request, cards, idempotencyKey);
     }
 
-    private void handleInternalTransaction(UUID accId, BigDecimal sAmount, BigDecimal rAmount, List<Transaction> txs) {
-        Account acc = accountRepository.findByIdWithLock(accId).orElseThrow(() -> new RecordNotFoundException("Account not found"));
+    private Map<UUID, TransferCardView> findTransferViews(Collection<UUID> cardIds) {
+        return cardRepository.findTransferViewsByIdIn(cardIds)
+                .stream()
+                .collect(Collectors.toMap(TransferCardView::cardId, Function.identity()));
+    }
 
-        if (acc.getBalance().compareTo(sAmount) < 0) {
-            throw new InsufficientFundsException("Insufficient funds");
+    TransferQuote toQuote(P2PRequest request, Map<UUID, TransferCardView> cards, String idempotencyKey) {
+        TransferCardView sender = cards.get(request.senderCardId());
+        if (sender == null) {
+            throw new RecordNotFoundException("Sender card not found");
+        }
+        TransferCardView receiver = cards.get(request.receiverCardId());
+        if (receiver == null) {
+            throw new RecordNotFoundException("Receiver card not found");
         }
 
-        BigDecimal before = acc.getBalance();
-        acc.setBalance(before.subtract(sAmount).add(rAmount));
+        validateTransferable(sender, "Sender");
+        validateTransferable(receiver, "Receiver");
 
-        finalizeTransactionBalances(txs, before, before.subtract(sAmount), sAmount, rAmount);
-    }
+        BigDecimal exchangeRate;
+        try (TransferTrace.Stage ignored = TransferTrace.current().enter(TransferStage.RATE_FETCH)) {
+            exchangeRate = cbuService.getExchangeRate(sender.currency(), receiver.currency());
+        }
+        BigDecimal amountInReceiverCurrency = request.amount().multiply(exchangeRate).setScale(2, RoundingMode.HALF_UP);
+        // a tiny amount can round to zero in the receiver currency, which the ledger would reject at insert time
+        if (amountInReceiverCurrency.signum() <= 0) {
+            throw new IllegalArgumentException("Amount is too small to transfer to a " + receiver.currency() + " card");
+        }
 
-    private List<Transaction> prepareInitialTransactions(Card sender, Card receiver, P2PRequest req, String idKey, UUID refId) {
-        LocalDateTime now = LocalDateTime.now();
-        return List.of(
-                createBaseTransaction(sender, receiver.getId(), req.amount(), TransactionType.DEBIT, idKey, refId, now, req),
-                createBaseTransaction(receiver, sender.getId(), req.amount(), TransactionType.CREDIT, idKey + "-CR", refId, now, req)
+        return new TransferQuote(
+                sender.cardId(),
+                receiver.cardId(),
+                sender.accountId(),
+                receiver.accountId(),
+                sender.currency(),
+                receiver.currency(),
+                exchangeRate,
+                request.amount(),
+                amountInReceiverCurrency,
+                request.externalId(),
+                request.description(),
+                idempotencyKey
         );
     }
 
-    private Transaction createBaseTransaction(Card card, UUID target, BigDecimal amount, TransactionType type, String idKey, UUID refId, LocalDateTime now, P2PRequest req) {
-        Transaction tx = new Transaction();
-        tx.setCard(card);
-        tx.setTargetCardId(target);
-        tx.setAmount(amount);
-        tx.setType(type);
-        tx.setReferenceId(refId);
-        tx.setIdempotencyKey(idKey);
-        tx.setExternalId(req.externalId());
-        tx.setDescription(req.description());
-        tx.setCurrency(card.getCurrency());
-        tx.setStatus(TransactionStatus.PENDING);
-        tx.setCreatedAt(now);
-        return tx;
+    private void validateTransferable(TransferCardView card, String side) {
+        if (card.status() != CardStatus.ACTIVE) {
+            throw new CardNotActiveException(side + " card is not active");
+        }
+        if (card.accountStatus() != AccountStatus.ACTIVE) {
+            throw new CardNotActiveException(side + " account is not active");
+        }
     }
 
-    private void finalizeTransactionBalances(List<Transaction> txs, BigDecimal sBefore, BigDecimal rBefore, BigDecimal sAmount, BigDecimal rAmount) {
-        for (Transaction tx : txs) {
-            if (tx.getType() == TransactionType.DEBIT) {
-                tx.setBeforeBalance(sBefore);
-                tx.setAfterBalance(sBefore.subtract(sAmount));
-                tx.setAmount(sAmount);
-            } else {
-                tx.setBeforeBalance(rBefore);
-                tx.setAfterBalance(rBefore.add(rAmount));
-                tx.setAmount(rAmount);
-            }
+    public Page<TransactionResponseDto> getTransactionHistoryByCardId(UUID cardId, LocalDateTime from, LocalDateTime to,
+                                                                      Pageable pageable, User user) {
+        HistoryWindow window = resolveHistoryWindow(from, to);
+        validateCardOwnership(cardId, user);
+
+        List<TransactionResponseDto> content = transactionHistoryRepository.findPage(
+                cardId, window.from(), window.to(), pageable.getSort(), pageable.getPageSize(), pageable.getOffset());
+        // COUNT only runs when the page is full and its size does not already give the total
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> transactionHistoryRepository.count(cardId, window.from(), window.to()));
+    }
+
+    public CursorPageResponseDto<TransactionResponseDto> getTransactionHistoryByCursor(UUID cardId, LocalDateTime from, LocalDateTime to,
+                                                                                      String cursor, int limit, User user) {
+        HistoryWindow window = resolveHistoryWindow(from, to);
+        validateCardOwnership(cardId, user);
+
+        int pageSize = Math.min(Math.max(limit, 1), MAX_HISTORY_PAGE_SIZE);
+        // one extra row tells whether another page exists without counting
+        List<TransactionResponseDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = transactionHistoryRepository.findLatest(cardId, window.from(), window.to(), pageSize + 1);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            rows = transactionHistoryRepository.findBefore(cardId, window.from(), after.createdAt(), after.id(), pageSize + 1);
         }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<TransactionResponseDto> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            TransactionResponseDto last = page.get(page.size() - 1);
+            nextCursor = new HistoryCursor(last.createdAt(), last.transactionId()).encode();
+        }
+
+        return new CursorPageResponseDto<>(page, nextCursor, hasMore);
     }
 
-    private void updateTransactionStatus(List<Transaction> txs, TransactionStatus status) {
-        txs.forEach(tx -> tx.setStatus(status));
-        transactionRepository.saveAll(txs);
+    private void validateCardOwnership(UUID cardId, User user) {
+        if (!cardRepository.existsByIdAndAccountUserId(cardId, user.getId())) {
+            throw new AccessDeniedException("Ownership validation failed: You can only access your own cards");
+        }
     }
 
-    public Page<TransactionResponseDto> getTransactionHistoryByCardId(UUID cardId, Pageable pageable, User user) {
-        return transactionRepository.findByCardIdAndUserId(cardId, user.getId(), pageable)
-                .map(TransactionMapper::toDto);
+    private HistoryWindow resolveHistoryWindow(LocalDateTime from, LocalDateTime to) {
+        return HistoryWindow.resolve(from, to, defaultHistoryWindowDays, maxHistoryWindowDays);
     }
-}
\ No newline at end of file
+}
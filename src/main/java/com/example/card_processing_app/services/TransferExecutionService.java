@@ -0,0 +1,362 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.components.TransferTrace;
+import com.example.card_processing_app.dto.BalanceAfter;
+import com.example.card_processing_app.dto.TransferOutcome;
+import com.example.card_processing_app.dto.TransferQuote;
+import com.example.card_processing_app.entities.Account;
+import com.example.card_processing_app.entities.Card;
+import com.example.card_processing_app.entities.Transaction;
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.enums.TransactionStatus;
+import com.example.card_processing_app.enums.TransactionType;
+import com.example.card_processing_app.enums.TransferExecutionMode;
+import com.example.card_processing_app.enums.TransferStage;
+import com.example.card_processing_app.exception.InsufficientFundsException;
+import com.example.card_processing_app.exception.RecordNotFoundException;
+import com.example.card_processing_app.repositories.AccountBalanceRepository;
+import com.example.card_processing_app.repositories.AccountRepository;
+import com.example.card_processing_app.repositories.CardRepository;
+import com.example.card_processing_app.repositories.TransactionLedgerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class TransferExecutionService {
+    private final CardRepository cardRepository;
+    private final AccountRepository accountRepository;
+    private final AccountShardService accountShardService;
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final TransactionLedgerRepository transactionLedgerRepository;
+    private final AccountLockService accountLockService;
+
+    @Value("${app.transfer.execution-mode:LOCKING}")
+    private TransferExecutionMode executionMode;
+
+    // only locks, debits, credits and inserts: everything else is resolved by the caller beforehand. A failure
+    // rolls the whole transaction back, so a failed transfer leaves no ledger rows
+    @Transactional
+    public void execute(TransferQuote quote) {
+        UUID senderAccId = quote.senderAccountId();
+        UUID receiverAccId = quote.receiverAccountId();
+        BigDecimal sAmount = quote.senderAmount();
+        BigDecimal rAmount = quote.receiverAmount();
+
+        List<Transaction> transactions = prepareInitialTransactions(quote, UUID.randomUUID(), LocalDateTime.now());
+        TransferTrace trace = TransferTrace.current();
+        trace.timeCommit();
+
+        // lock waits are traced separately inside; in ATOMIC mode the conditional UPDATE waits for the row lock
+        // itself, so its wait stays part of the mutation
+        try (TransferTrace.Stage ignored = trace.enter(TransferStage.BALANCE_MUTATION)) {
+            if (executionMode == TransferExecutionMode.ATOMIC) {
+                handleAtomicTransaction(senderAccId, receiverAccId, sAmount, rAmount, transactions);
+            } else if (quote.isInternal()) {
+                handleInternalTransaction(senderAccId, sAmount, rAmount, transactions);
+            } else {
+                // scalar read keeps the receiver account out of the persistence context until it is locked
+                int receiverShardCount = accountRepository.findShardCountById(receiverAccId);
+
+                if (receiverShardCount > 0) {
+                    handleHotAccountCredit(senderAccId, receiverAccId, receiverShardCount, sAmount, rAmount, transactions);
+                } else {
+                    handleExternalTransaction(senderAccId, receiverAccId, sAmount, rAmount, transactions);
+                }
+            }
+        }
+
+        transactions.forEach(tx -> {
+            tx.setId(UUID.randomUUID());
+            tx.setStatus(TransactionStatus.COMPLETED);
+        });
+        try (TransferTrace.Stage ignored = trace.enter(TransferStage.LEDGER_INSERT)) {
+            transactionLedgerRepository.write(transactions);
+        }
+    }
+
+    // every account of the batch is locked once, movements are applied in memory and the ledger goes out
+    // as one JDBC batch; an item without funds is recorded as FAILED instead of failing the whole batch
+    @Transactional
+    public List<TransferOutcome> executeBatch(List<TransferQuote> quotes) {
+        return applyInOneTransaction(quotes, true);
+    }
+
+    // group commit of independent single transfers: a transfer without funds leaves no ledger rows, exactly
+    // as when execute rolls it back on its own
+    @Transactional
+    public List<TransferOutcome> executeGroup(List<TransferQuote> quotes) {
+        return applyInOneTransaction(quotes, false);
+    }
+
+    private List<TransferOutcome> applyInOneTransaction(List<TransferQuote> quotes, boolean recordFailures) {
+        Map<UUID, Account> accounts = lockAccountsInOrder(quotes);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Transaction> ledger = new ArrayList<>(quotes.size() * 2);
+        List<TransferOutcome> outcomes = new ArrayList<>(quotes.size());
+
+        for (TransferQuote quote : quotes) {
+            UUID refId = UUID.randomUUID();
+            List<Transaction> txs = prepareInitialTransactions(quote, refId, now);
+
+            Account senderAcc = accounts.get(quote.senderAccountId());
+            Account receiverAcc = accounts.get(quote.receiverAccountId());
+            BigDecimal sAmount = quote.senderAmount();
+            BigDecimal rAmount = quote.receiverAmount();
+            BigDecimal sBefore = senderAcc.getBalance();
+
+            if (sBefore.compareTo(sAmount) < 0) {
+                String reason = "Insufficient funds on sender account";
+                outcomes.add(TransferOutcome.failed(refId, reason));
+                if (!recordFailures) {
+                    continue;
+                }
+                markFailed(txs, ledgerBalance(senderAcc), ledgerBalance(receiverAcc), reason);
+            } else {
+                BigDecimal sLedger = ledgerBalance(senderAcc);
+                if (quote.isInternal()) {
+                    senderAcc.setBalance(sBefore.subtract(sAmount).add(rAmount));
+                    finalizeTransactionBalances(txs, sLedger, subtract(sLedger, sAmount), sAmount, rAmount);
+                } else {
+                    BigDecimal rLedger = ledgerBalance(receiverAcc);
+                    senderAcc.setBalance(sBefore.subtract(sAmount));
+                    receiverAcc.setBalance(receiverAcc.getBalance().add(rAmount));
+                    finalizeTransactionBalances(txs, sLedger, rLedger, sAmount, rAmount);
+                }
+                txs.forEach(tx -> tx.setStatus(TransactionStatus.COMPLETED));
+                outcomes.add(TransferOutcome.completed(refId));
+            }
+
+            txs.forEach(tx -> tx.setId(UUID.randomUUID()));
+            ledger.addAll(txs);
+        }
+
+        transactionLedgerRepository.write(ledger);
+        return outcomes;
+    }
+
+    // one ordered pass over all involved accounts, the batch form of the UUID ordering in handleExternalTransaction
+    private Map<UUID, Account> lockAccountsInOrder(List<TransferQuote> quotes) {
+        SortedSet<UUID> accountIds = new TreeSet<>();
+        for (TransferQuote quote : quotes) {
+            accountIds.add(quote.senderAccountId());
+            accountIds.add(quote.receiverAccountId());
+        }
+
+        Map<UUID, Account> accounts = new HashMap<>(accountIds.size() * 2);
+        for (UUID accountId : accountIds) {
+            Account account = lockAccount(accountId);
+            if (account.isHot()) {
+                accountShardService.consolidate(account);
+            }
+            accounts.put(accountId, account);
+        }
+        return accounts;
+    }
+
+    private void handleExternalTransaction(UUID sAccId, UUID rAccId, BigDecimal sAmount, BigDecimal rAmount, List<Transaction> txs) {
+        UUID firstId = sAccId.compareTo(rAccId) < 0 ? sAccId : rAccId;
+        UUID secondId = firstId.equals(sAccId) ? rAccId : sAccId;
+
+        Account firstAcc = lockAccount(firstId);
+        Account secondAcc = lockAccount(secondId);
+
+        Account senderAcc = firstAcc.getId().equals(sAccId) ? firstAcc : secondAcc;
+        Account receiverAcc = firstAcc.getId().equals(rAccId) ? firstAcc : secondAcc;
+
+        if (!hasSufficientFunds(senderAcc, sAmount)) {
+            throw new InsufficientFundsException("Insufficient funds on sender account");
+        }
+
+        BigDecimal sBefore = ledgerBalance(senderAcc);
+        BigDecimal rBefore = ledgerBalance(receiverAcc);
+
+        senderAcc.setBalance(senderAcc.getBalance().subtract(sAmount));
+        receiverAcc.setBalance(receiverAcc.getBalance().add(rAmount));
+
+        finalizeTransactionBalances(txs, sBefore, rBefore, sAmount, rAmount);
+    }
+
+    // the receiver row is never locked: the credit lands on one of its shards, so it has no ledger balance
+    private void handleHotAccountCredit(UUID sAccId, UUID rAccId, int rShardCount, BigDecimal sAmount, BigDecimal rAmount, List<Transaction> txs) {
+        Account senderAcc = lockAccount(sAccId);
+
+        if (!hasSufficientFunds(senderAcc, sAmount)) {
+            throw new InsufficientFundsException("Insufficient funds on sender account");
+        }
+
+        BigDecimal sBefore = ledgerBalance(senderAcc);
+        senderAcc.setBalance(senderAcc.getBalance().subtract(sAmount));
+
+        accountShardService.credit(rAccId, rShardCount, rAmount);
+
+        finalizeTransactionBalances(txs, sBefore, null, sAmount, rAmount);
+    }
+
+    private void handleInternalTransaction(UUID accId, BigDecimal sAmount, BigDecimal rAmount, List<Transaction> txs) {
+        Account acc = lockAccount(accId);
+
+        if (!hasSufficientFunds(acc, sAmount)) {
+            throw new InsufficientFundsException("Insufficient funds");
+        }
+
+        BigDecimal before = ledgerBalance(acc);
+        acc.setBalance(acc.getBalance().subtract(sAmount).add(rAmount));
+
+        finalizeTransactionBalances(txs, before, subtract(before, sAmount), sAmount, rAmount);
+    }
+
+    // conditional UPDATE ... RETURNING per account: no entity load, no dirty checking, and each row
+    // is locked by a single statement; rows are touched in UUID order like the locking mode
+    private void handleAtomicTransaction(UUID sAccId, UUID rAccId, BigDecimal sAmount, BigDecimal rAmount, List<Transaction> txs) {
+        if (sAccId.equals(rAccId)) {
+            BalanceAfter after = withConsolidationRetry(sAccId, () -> accountBalanceRepository.transferWithin(sAccId, sAmount, rAmount))
+                    .orElseThrow(() -> new InsufficientFundsException("Insufficient funds"));
+            BigDecimal before = subtract(add(after.ledgerBalance(), sAmount), rAmount);
+
+            finalizeTransactionBalances(txs, before, subtract(before, sAmount), sAmount, rAmount);
+            return;
+        }
+
+        int receiverShardCount = accountRepository.findShardCountById(rAccId);
+        BigDecimal sAfter;
+        BigDecimal rAfter;
+
+        if (receiverShardCount > 0) {
+            sAfter = debitAtomically(sAccId, sAmount);
+            accountShardService.credit(rAccId, receiverShardCount, rAmount);
+            rAfter = null;
+        } else if (sAccId.compareTo(rAccId) < 0) {
+            sAfter = debitAtomically(sAccId, sAmount);
+            rAfter = creditAtomically(rAccId, rAmount);
+        } else {
+            rAfter = creditAtomically(rAccId, rAmount);
+            sAfter = debitAtomically(sAccId, sAmount);
+        }
+
+        finalizeTransactionBalances(txs, add(sAfter, sAmount), subtract(rAfter, rAmount), sAmount, rAmount);
+    }
+
+    private BigDecimal debitAtomically(UUID accId, BigDecimal amount) {
+        return withConsolidationRetry(accId, () -> accountBalanceRepository.debit(accId, amount))
+                .orElseThrow(() -> new InsufficientFundsException("Insufficient funds on sender account"))
+                .ledgerBalance();
+    }
+
+    // the ATOMIC form of hasSufficientFunds: a hot account may hold the missing funds in its shards
+    private Optional<BalanceAfter> withConsolidationRetry(UUID accId, Supplier<Optional<BalanceAfter>> debit) {
+        Optional<BalanceAfter> after = accountLockService.guardImplicitLock(accId, debit);
+
+        if (after.isEmpty() && accountRepository.findShardCountById(accId) > 0) {
+            accountShardService.consolidate(accId);
+            after = accountLockService.guardImplicitLock(accId, debit);
+        }
+        return after;
+    }
+
+    private BigDecimal creditAtomically(UUID accId, BigDecimal amount) {
+        return accountLockService.guardImplicitLock(accId, () -> accountBalanceRepository.credit(accId, amount))
+                .orElseThrow(() -> new RecordNotFoundException("Account not found"))
+                .ledgerBalance();
+    }
+
+    private Account lockAccount(UUID accountId) {
+        try (TransferTrace.Stage ignored = TransferTrace.current().enter(TransferStage.LOCK_WAIT)) {
+            return accountLockService.lock(accountId);
+        }
+    }
+
+    // a hot account's total includes shard credits that never take its row lock, so no balance recorded in the
+    // ledger could be exact: before/after balances of its movements are left empty
+    private BigDecimal ledgerBalance(Account lockedAcc) {
+        return lockedAcc.isHot() ? null : lockedAcc.getBalance();
+    }
+
+    private static BigDecimal add(BigDecimal balance, BigDecimal amount) {
+        return balance == null ? null : balance.add(amount);
+    }
+
+    private static BigDecimal subtract(BigDecimal balance, BigDecimal amount) {
+        return balance == null ? null : balance.subtract(amount);
+    }
+
+    private boolean hasSufficientFunds(Account lockedAcc, BigDecimal amount) {
+        if (lockedAcc.getBalance().compareTo(amount) >= 0) {
+            return true;
+        }
+        if (lockedAcc.isHot()) {
+            accountShardService.consolidate(lockedAcc);
+            return lockedAcc.getBalance().compareTo(amount) >= 0;
+        }
+        return false;
+    }
+
+    List<Transaction> prepareInitialTransactions(TransferQuote quote, UUID refId, LocalDateTime now) {
+        Card sender = cardRepository.getReferenceById(quote.senderCardId());
+        Card receiver = cardRepository.getReferenceById(quote.receiverCardId());
+        String idKey = quote.idempotencyKey();
+
+        return List.of(
+                createBaseTransaction(sender, quote.senderCurrency(), quote.senderAmount(), receiver.getId(), TransactionType.DEBIT, idKey, refId, now, quote),
+                createBaseTransaction(receiver, quote.receiverCurrency(), quote.receiverAmount(), sender.getId(), TransactionType.CREDIT, idKey + "-CR", refId, now, quote)
+        );
+    }
+
+    private Transaction createBaseTransaction(Card card, CurrencyType currency, BigDecimal amount, UUID target, TransactionType type, String idKey, UUID refId, LocalDateTime now, TransferQuote quote) {
+        Transaction tx = new Transaction();
+        tx.setCard(card);
+        tx.setTargetCardId(target);
+        tx.setAmount(amount);
+        tx.setType(type);
+        tx.setReferenceId(refId);
+        tx.setIdempotencyKey(idKey);
+        tx.setExternalId(quote.externalId());
+        tx.setDescription(quote.description());
+        tx.setCurrency(currency);
+        tx.setStatus(TransactionStatus.PENDING);
+        tx.setCreatedAt(now);
+        return tx;
+    }
+
+    // a null before balance (hot account) leaves both balances of that side empty
+    void finalizeTransactionBalances(List<Transaction> txs, BigDecimal sBefore, BigDecimal rBefore, BigDecimal sAmount, BigDecimal rAmount) {
+        for (Transaction tx : txs) {
+            if (tx.getType() == TransactionType.DEBIT) {
+                tx.setBeforeBalance(sBefore);
+                tx.setAfterBalance(subtract(sBefore, sAmount));
+                tx.setAmount(sAmount);
+            } else {
+                tx.setBeforeBalance(rBefore);
+                tx.setAfterBalance(add(rBefore, rAmount));
+                tx.setAmount(rAmount);
+            }
+        }
+    }
+
+    private void markFailed(List<Transaction> txs, BigDecimal sBalance, BigDecimal rBalance, String reason) {
+        for (Transaction tx : txs) {
+            BigDecimal balance = tx.getType() == TransactionType.DEBIT ? sBalance : rBalance;
+            tx.setBeforeBalance(balance);
+            tx.setAfterBalance(balance);
+            tx.setStatus(TransactionStatus.FAILED);
+            tx.setFailureReason(reason);
+        }
+    }
+}
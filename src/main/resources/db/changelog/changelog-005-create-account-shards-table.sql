@@ -0,0 +1,15 @@
+-- liquibase formatted sql
+-- changeset developer:005
+
+-- hot account mode: number of sub-balance rows backing the account (0 = regular account)
+ALTER TABLE accounts ADD COLUMN shard_count INT NOT NULL DEFAULT 0;
+
+-- create account_shards table
+CREATE TABLE account_shards (
+                        account_id UUID NOT NULL,
+                        shard_no INT NOT NULL,
+                        balance DECIMAL(19, 4) NOT NULL DEFAULT 0.0000,
+                        updated_at TIMESTAMP NOT NULL DEFAULT now(),
+                        CONSTRAINT pk_account_shards PRIMARY KEY (account_id, shard_no),
+                        CONSTRAINT fk_account_shards_account FOREIGN KEY (account_id) REFERENCES accounts(id)
+);
@@ -0,0 +1,26 @@
+-- liquibase formatted sql
+-- changeset developer:006
+
+-- one row per account and day with COMPLETED activity, closing_balance = opening_balance + credit_total - debit_total
+CREATE TABLE account_daily_balances (
+                        account_id UUID NOT NULL,
+                        balance_date DATE NOT NULL,
+                        opening_balance DECIMAL(19, 2) NOT NULL,
+                        closing_balance DECIMAL(19, 2) NOT NULL,
+                        debit_total DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+                        credit_total DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+                        debit_count INT NOT NULL DEFAULT 0,
+                        credit_count INT NOT NULL DEFAULT 0,
+                        updated_at TIMESTAMP NOT NULL DEFAULT now(),
+                        CONSTRAINT pk_account_daily_balances PRIMARY KEY (account_id, balance_date),
+                        CONSTRAINT fk_account_daily_balances_account FOREIGN KEY (account_id) REFERENCES accounts(id)
+);
+
+-- last day the snapshot job has fully processed; every day up to it is covered by account_daily_balances
+CREATE TABLE account_daily_balance_watermark (
+                        id SMALLINT NOT NULL,
+                        last_balance_date DATE NOT NULL,
+                        updated_at TIMESTAMP NOT NULL DEFAULT now(),
+                        CONSTRAINT pk_account_daily_balance_watermark PRIMARY KEY (id),
+                        CONSTRAINT chk_account_daily_balance_watermark_single_row CHECK (id = 1)
+);
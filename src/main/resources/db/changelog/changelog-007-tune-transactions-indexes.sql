@@ -0,0 +1,20 @@
+-- liquibase formatted sql
+-- changeset developer:007
+
+-- index definitions on the partitioned table cascade to every partition, existing and future;
+-- on a large ledger run this in a maintenance window (CONCURRENTLY is not available on the parent)
+
+-- history pages, cursors, counts and exports: equality on card_id, range and order on (created_at, id).
+-- INCLUDE carries the remaining response columns so all-visible pages are answered by an index-only scan
+CREATE INDEX idx_transactions_card_history ON transactions (card_id, created_at DESC, id DESC)
+    INCLUDE (external_id, after_balance, amount, currency, purpose, type, status, description);
+
+-- rows arrive in created_at order, so a BRIN index is a few pages per partition and still lets the
+-- day-wide scans (balance snapshots, archiving exports) skip most of a monthly partition
+CREATE INDEX idx_transactions_created_at_brin ON transactions USING brin (created_at) WITH (pages_per_range = 32);
+
+-- superseded by idx_transactions_card_history, which has the same leading columns
+DROP INDEX idx_transactions_card_at;
+
+-- idempotency is enforced in Redis and nothing looks up ledger rows by their key
+DROP INDEX idx_transactions_idempotency_key;
@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+-- changeset developer:008
+
+-- credits to a hot account land on a shard without taking the account row lock, so there is no exact
+-- balance before or after such a movement; the ledger leaves both columns empty for hot accounts
+ALTER TABLE transactions ALTER COLUMN before_balance DROP NOT NULL;
+ALTER TABLE transactions ALTER COLUMN after_balance DROP NOT NULL;
@@ -0,0 +1,110 @@
+package com.example.card_processing_app.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTests {
+    private enum Event {
+        HIT,
+        MISS
+    }
+
+    @Test
+    void tracksExactWeightsWithinCapacity() {
+        SpaceSavingSketch<String, Event> sketch = new SpaceSavingSketch<>(3, Event.class);
+        sketch.add("a", 5, Event.HIT);
+        sketch.add("b", 2, Event.HIT);
+        sketch.add("a", 1, Event.MISS);
+
+        List<SpaceSavingSketch.Entry<String>> top = sketch.top(10);
+
+        assertEquals(List.of("a", "b"), top.stream().map(SpaceSavingSketch.Entry::key).toList());
+        assertEquals(6, top.get(0).weight());
+        assertEquals(0, top.get(0).error());
+        assertEquals(1, top.get(0).count(Event.HIT));
+        assertEquals(1, top.get(0).count(Event.MISS));
+    }
+
+    @Test
+    void newKeyEvictsLightestAndInheritsItsWeightAsError() {
+        SpaceSavingSketch<String, Event> sketch = new SpaceSavingSketch<>(2, Event.class);
+        sketch.add("heavy", 10, Event.HIT);
+        sketch.add("light", 3, Event.HIT);
+        sketch.add("new", 1, Event.MISS);
+
+        Map<String, SpaceSavingSketch.Entry<String>> entries = byKey(sketch.top(10));
+
+        assertFalse(entries.containsKey("light"));
+        assertEquals(4, entries.get("new").weight());
+        assertEquals(3, entries.get("new").error());
+        // event counts start over with the new key
+        assertEquals(0, entries.get("new").count(Event.HIT));
+        assertEquals(1, entries.get("new").count(Event.MISS));
+        assertEquals(10, entries.get("heavy").weight());
+    }
+
+    @Test
+    void keysHeavierThanTotalOverCapacityAreAlwaysReported() {
+        int capacity = 10;
+        SpaceSavingSketch<Integer, Event> sketch = new SpaceSavingSketch<>(capacity, Event.class);
+        Random random = new Random(42);
+        long[] exact = new long[1_000];
+        long total = 0;
+
+        for (int i = 0; i < 50_000; i++) {
+            // keys 0 and 1 take a fifth of the stream each, the rest is spread over many light keys
+            int key = switch (random.nextInt(5)) {
+                case 0 -> 0;
+                case 1 -> 1;
+                default -> 2 + random.nextInt(exact.length - 2);
+            };
+            long weight = 1 + random.nextInt(3);
+            sketch.add(key, weight, Event.HIT);
+            exact[key] += weight;
+            total += weight;
+        }
+
+        Map<Integer, SpaceSavingSketch.Entry<Integer>> entries = byKey(sketch.top(capacity));
+        for (int key = 0; key < exact.length; key++) {
+            if (exact[key] > total / capacity) {
+                assertTrue(entries.containsKey(key), "heavy hitter " + key + " missing");
+            }
+        }
+        // reported weights overestimate by at most the error
+        for (SpaceSavingSketch.Entry<Integer> entry : entries.values()) {
+            long actual = exact[entry.key()];
+            assertTrue(entry.weight() >= actual && entry.weight() - entry.error() <= actual);
+        }
+    }
+
+    @Test
+    void topReturnsCopies() {
+        SpaceSavingSketch<String, Event> sketch = new SpaceSavingSketch<>(2, Event.class);
+        sketch.add("a", 1, Event.HIT);
+        SpaceSavingSketch.Entry<String> snapshot = sketch.top(1).get(0);
+
+        sketch.add("a", 5, Event.HIT);
+
+        assertEquals(1, snapshot.weight());
+        assertEquals(1, snapshot.count(Event.HIT));
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch<>(0, Event.class));
+    }
+
+    private static <K> Map<K, SpaceSavingSketch.Entry<K>> byKey(List<SpaceSavingSketch.Entry<K>> entries) {
+        return entries.stream().collect(Collectors.toMap(SpaceSavingSketch.Entry::key, Function.identity()));
+    }
+}
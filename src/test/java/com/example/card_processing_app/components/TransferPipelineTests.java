@@ -0,0 +1,81 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.dto.TransferOutcome;
+import com.example.card_processing_app.dto.TransferQuote;
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.enums.TransferExecutionMode;
+import com.example.card_processing_app.exception.TechnicalException;
+import com.example.card_processing_app.services.TransferExecutionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransferPipelineTests {
+    private TransferExecutionService transferExecutionService;
+    private TransferPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        transferExecutionService = mock(TransferExecutionService.class);
+        pipeline = new TransferPipeline(transferExecutionService,
+                new TransferMetrics(registry, Counter.builder("success").register(registry)));
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 16);
+        ReflectionTestUtils.setField(pipeline, "maxBatchSize", 8);
+        ReflectionTestUtils.setField(pipeline, "maxWaitMicros", 100L);
+        ReflectionTestUtils.setField(pipeline, "enqueueTimeoutMs", 100L);
+        ReflectionTestUtils.setField(pipeline, "awaitTimeoutMs", 5000L);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void errorInWriterFailsTheBatchAndWriterKeepsRunning() {
+        UUID referenceId = UUID.randomUUID();
+        when(transferExecutionService.executeGroup(anyList()))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(List.of(TransferOutcome.completed(referenceId)));
+
+        assertThrows(TechnicalException.class, () -> pipeline.execute(quote()));
+        assertEquals(referenceId, pipeline.execute(quote()).referenceId());
+    }
+
+    @Test
+    void stoppedPipelineRejectsTransfers() throws InterruptedException {
+        pipeline.stop();
+
+        assertThrows(TechnicalException.class, () -> pipeline.execute(quote()));
+    }
+
+    @Test
+    void refusesToStartWithAtomicExecutionMode() throws InterruptedException {
+        pipeline.stop();
+        ReflectionTestUtils.setField(pipeline, "executionMode", TransferExecutionMode.ATOMIC);
+
+        assertThrows(IllegalStateException.class, pipeline::start);
+    }
+
+    private TransferQuote quote() {
+        return new TransferQuote(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                CurrencyType.UZS, CurrencyType.UZS, BigDecimal.ONE, BigDecimal.TEN, BigDecimal.TEN,
+                "EXT-1", "test", "key");
+    }
+}
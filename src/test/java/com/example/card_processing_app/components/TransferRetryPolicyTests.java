@@ -0,0 +1,116 @@
+package com.example.card_processing_app.components;
+
+import com.example.card_processing_app.exception.AccountDeadlockException;
+import com.example.card_processing_app.exception.AccountLockTimeoutException;
+import com.example.card_processing_app.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransferRetryPolicyTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void retriesTransientFailuresUntilSuccess() {
+        TransferRetryPolicy policy = policy(3, 100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = policy.execute(() -> switch (attempts.incrementAndGet()) {
+            case 1 -> throw new AccountLockTimeoutException("busy");
+            case 2 -> throw new AccountDeadlockException("deadlock");
+            default -> "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(1, registry.counter("transfer.retries", "cause", "lock_timeout").count());
+        assertEquals(1, registry.counter("transfer.retries", "cause", "deadlock").count());
+    }
+
+    @Test
+    void retriesConcurrencyFailures() {
+        TransferRetryPolicy policy = policy(2, 100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        policy.run(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new CannotAcquireLockException("serialization failure");
+            }
+        });
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, registry.counter("transfer.retries", "cause", "concurrency_failure").count());
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        TransferRetryPolicy policy = policy(3, 100);
+
+        assertAttemptsFor(policy, new InsufficientFundsException("no funds"), 1);
+        assertAttemptsFor(policy, new DataIntegrityViolationException("duplicate"), 1);
+        assertAttemptsFor(policy, new IllegalStateException("bug"), 1);
+    }
+
+    @Test
+    void stopsAfterMaxAttempts() {
+        TransferRetryPolicy policy = policy(3, 100);
+
+        assertAttemptsFor(policy, new AccountLockTimeoutException("busy"), 3);
+        assertEquals(1, registry.counter("transfer.retries.exhausted", "reason", "attempts").count());
+    }
+
+    @Test
+    void emptyBudgetRethrowsOriginalFailure() {
+        TransferRetryPolicy policy = policy(5, 1);
+        AccountLockTimeoutException busy = new AccountLockTimeoutException("busy");
+
+        // the single token goes to the first retry, the second retry finds the budget empty
+        AtomicInteger attempts = new AtomicInteger();
+        AccountLockTimeoutException thrown = assertThrows(AccountLockTimeoutException.class, () -> policy.run(() -> {
+            attempts.incrementAndGet();
+            throw busy;
+        }));
+
+        assertSame(busy, thrown);
+        assertEquals(2, attempts.get());
+        assertEquals(1, registry.counter("transfer.retries.exhausted", "reason", "budget").count());
+        assertEquals(0, registry.counter("transfer.retries.exhausted", "reason", "attempts").count());
+    }
+
+    @Test
+    void backoffStaysWithinJitterCeiling() {
+        TransferRetryPolicy policy = new TransferRetryPolicy(registry, 10, 10, 200, 0.2, 100);
+        long[] ceilings = {10, 20, 40, 80, 160, 200, 200};
+
+        for (int attempt = 1; attempt <= ceilings.length; attempt++) {
+            for (int i = 0; i < 1_000; i++) {
+                long backoff = policy.backoffMs(attempt);
+                assertTrue(backoff >= 0 && backoff <= ceilings[attempt - 1],
+                        "attempt " + attempt + " slept " + backoff + "ms");
+            }
+        }
+    }
+
+    private TransferRetryPolicy policy(int maxAttempts, int budgetTokens) {
+        // zero backoff keeps the tests fast, a zero ratio keeps the budget at its initial tokens
+        return new TransferRetryPolicy(registry, maxAttempts, 0, 0, 0, budgetTokens);
+    }
+
+    private void assertAttemptsFor(TransferRetryPolicy policy, RuntimeException failure, int expectedAttempts) {
+        AtomicInteger attempts = new AtomicInteger();
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> policy.run(() -> {
+            attempts.incrementAndGet();
+            throw failure;
+        }));
+        assertSame(failure, thrown);
+        assertEquals(expectedAttempts, attempts.get());
+    }
+}
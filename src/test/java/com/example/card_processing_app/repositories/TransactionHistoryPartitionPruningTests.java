@@ -0,0 +1,92 @@
+package com.example.card_processing_app.repositories;
+
+import com.example.card_processing_app.services.TransactionPartitioningService;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs EXPLAIN on the history queries of TransactionHistoryRepository and checks which
+// partitions the plan touches. Skipped when Docker is not available.
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionHistoryPartitionPruningTests {
+    private static final Pattern PARTITION = Pattern.compile("\\btransactions_(\\d{4}_\\d{2}|default)\\b");
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        TransactionPartitioningService partitioningService = new TransactionPartitioningService(new JdbcTemplate(dataSource));
+        for (int month = 1; month <= 4; month++) {
+            partitioningService.createPartitionIfNotExist(LocalDateTime.of(2025, month, 1, 0, 0));
+        }
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("ANALYZE transactions");
+    }
+
+    @Test
+    void latestPageTouchesOnlyPartitionsInsideWindow() {
+        assertEquals(Set.of("transactions_2025_02"), partitionsInPlan(TransactionHistoryRepository.LATEST_SQL,
+                UUID.randomUUID(), at(2025, 2, 1), at(2025, 3, 1), 21));
+    }
+
+    @Test
+    void windowAcrossMonthBoundaryTouchesBothMonths() {
+        assertEquals(Set.of("transactions_2025_02", "transactions_2025_03"), partitionsInPlan(TransactionHistoryRepository.LATEST_SQL,
+                UUID.randomUUID(), at(2025, 2, 10), at(2025, 3, 20), 21));
+    }
+
+    @Test
+    void cursorPageSkipsPartitionsNewerThanCursor() {
+        Timestamp cursorAt = at(2025, 2, 15);
+        assertEquals(Set.of("transactions_2025_01", "transactions_2025_02"), partitionsInPlan(TransactionHistoryRepository.BEFORE_SQL,
+                UUID.randomUUID(), at(2025, 1, 15), cursorAt, cursorAt, UUID.randomUUID(), 21));
+    }
+
+    @Test
+    void countStaysInsideWindow() {
+        assertEquals(Set.of("transactions_2025_04"), partitionsInPlan(TransactionHistoryRepository.COUNT_SQL,
+                UUID.randomUUID(), at(2025, 4, 1), at(2025, 4, 30)));
+    }
+
+    private Set<String> partitionsInPlan(String sql, Object... args) {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN (COSTS OFF) " + sql, String.class, args);
+
+        return plan.stream()
+                .flatMap(line -> PARTITION.matcher(line).results().map(MatchResult::group))
+                .collect(Collectors.toSet());
+    }
+
+    private static Timestamp at(int year, int month, int day) {
+        return Timestamp.valueOf(LocalDateTime.of(year, month, day, 0, 0));
+    }
+}
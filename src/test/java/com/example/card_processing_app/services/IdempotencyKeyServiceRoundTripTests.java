@@ -0,0 +1,132 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.components.IdempotencyPayloadSerializer;
+import com.example.card_processing_app.components.JsonIdempotencyResponseCodec;
+import com.example.card_processing_app.components.SmileIdempotencyResponseCodec;
+import com.example.card_processing_app.enums.IdempotencyCodecType;
+import com.example.card_processing_app.enums.IdempotencyStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Counts Redis round trips per idempotent request against a local Redis (REDIS_HOST/REDIS_PORT, default localhost:6379).
+// Skipped when no Redis is reachable.
+class IdempotencyKeyServiceRoundTripTests {
+    private static final int REQUESTS = 1000;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+    private IdempotencyKeyService service;
+
+    @BeforeAll
+    static void connect() {
+        String host = System.getenv().getOrDefault("REDIS_HOST", "localhost");
+        int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        boolean reachable;
+        try {
+            reachable = "PONG".equals(redisTemplate.execute((RedisCallback<String>) c -> c.ping()));
+        } catch (Exception e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "Redis is not reachable at " + host + ":" + port);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        IdempotencyPayloadSerializer payloadSerializer = new IdempotencyPayloadSerializer(
+                List.of(new JsonIdempotencyResponseCodec(objectMapper), new SmileIdempotencyResponseCodec(objectMapper)),
+                new SimpleMeterRegistry(), IdempotencyCodecType.SMILE, 1024);
+        service = new IdempotencyKeyService(redisTemplate, payloadSerializer);
+        ReflectionTestUtils.setField(service, "ttlInHours", 1);
+        ReflectionTestUtils.setField(service, "lockTtlSeconds", 60);
+        service.loadScripts();
+    }
+
+    @Test
+    void newRequestTakesTwoRoundTrips() {
+        resetStats();
+        for (int i = 0; i < REQUESTS; i++) {
+            String key = "bench:" + UUID.randomUUID();
+            assertEquals(IdempotencyStatus.NEW, service.checkAndLock(key).status());
+            service.markAsComplete(key, Map.of("ok", true));
+        }
+        assertRoundTrips(2);
+    }
+
+    @Test
+    void failedRequestTakesTwoRoundTrips() {
+        resetStats();
+        for (int i = 0; i < REQUESTS; i++) {
+            String key = "bench:" + UUID.randomUUID();
+            service.checkAndLock(key);
+            service.deleteKey(key);
+        }
+        assertRoundTrips(2);
+    }
+
+    @Test
+    void replayTakesOneRoundTrip() {
+        String key = "bench:" + UUID.randomUUID();
+        service.checkAndLock(key);
+        service.markAsComplete(key, Map.of("ok", true));
+
+        resetStats();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(IdempotencyStatus.COMPLETED, service.checkAndLock(key).status());
+        }
+        assertRoundTrips(1);
+    }
+
+    // commandstats also counts the redis.call()s made inside the scripts, so only the script invocations
+    // themselves are client round trips
+    private void assertRoundTrips(int perRequest) {
+        Properties stats = redisTemplate.execute((RedisCallback<Properties>) c -> c.serverCommands().info("commandstats"));
+
+        assertEquals(0, calls(stats, "eval"), "scripts should always run by SHA");
+        assertEquals((long) perRequest * REQUESTS, calls(stats, "evalsha"));
+    }
+
+    private void resetStats() {
+        redisTemplate.execute((RedisCallback<Void>) c -> {
+            c.serverCommands().resetConfigStats();
+            return null;
+        });
+    }
+
+    private long calls(Properties stats, String command) {
+        String value = stats.getProperty("cmdstat_" + command);
+        if (value == null) {
+            return 0;
+        }
+        return Long.parseLong(value.substring("calls=".length(), value.indexOf(',')));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.dto.TransactionPartition;
+import com.example.card_processing_app.enums.PartitionGranularity;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Which future partitions are dropped after a granularity switch, on partition bounds read from pg_inherits.
+class TransactionPartitioningServiceTests {
+    private static final LocalDateTime TODAY = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+
+    @Test
+    void keepsGapUpToStartedPartitionButDropsOldPeriods() {
+        // started partition ending on a Wednesday, the gap up to the next Monday, then weekly partitions
+        LocalDateTime wednesday = TODAY.plusDays(2).with(TemporalAdjusters.nextOrSame(DayOfWeek.WEDNESDAY));
+        LocalDateTime monday = wednesday.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        LocalDateTime oldMonth = monday.plusWeeks(2).with(TemporalAdjusters.firstDayOfNextMonth());
+
+        TransactionPartition started = new TransactionPartition("transactions_started", TODAY.minusDays(1), wednesday);
+        TransactionPartition gap = new TransactionPartition("transactions_gap", wednesday, monday);
+        TransactionPartition week = new TransactionPartition("transactions_week", monday, monday.plusWeeks(1));
+        TransactionPartition month = new TransactionPartition("transactions_month", oldMonth, oldMonth.plusMonths(1));
+
+        TransactionPartitioningService service = service(PartitionGranularity.WEEKLY, List.of(started, gap, week, month));
+
+        assertEquals(List.of(month), service.findMisalignedFuturePartitions());
+    }
+
+    @Test
+    void dropsAllWeeksOfFutureMonthWhenSwitchingToMonthly() {
+        LocalDateTime month = TODAY.plusMonths(2).withDayOfMonth(1);
+        LocalDateTime end = month.plusMonths(1);
+
+        List<TransactionPartition> partitions = new ArrayList<>();
+        partitions.add(new TransactionPartition("transactions_current", TODAY.withDayOfMonth(1), month));
+        LocalDateTime from = month;
+        for (LocalDateTime to = month.with(TemporalAdjusters.next(DayOfWeek.MONDAY)); from.isBefore(end); to = to.plusWeeks(1)) {
+            LocalDateTime bound = to.isAfter(end) ? end : to;
+            partitions.add(new TransactionPartition("transactions_" + from.toLocalDate(), from, bound));
+            from = bound;
+        }
+
+        TransactionPartitioningService service = service(PartitionGranularity.MONTHLY, partitions);
+
+        assertEquals(partitions.subList(1, partitions.size()), service.findMisalignedFuturePartitions());
+    }
+
+    private TransactionPartitioningService service(PartitionGranularity granularity, List<TransactionPartition> partitions) {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (TransactionPartition partition : partitions) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(partition.name());
+                when(rs.getString(2)).thenReturn(String.format("FOR VALUES FROM ('%s') TO ('%s')",
+                        Timestamp.valueOf(partition.from()), Timestamp.valueOf(partition.to())));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        TransactionPartitioningService service = new TransactionPartitioningService(jdbcTemplate);
+        ReflectionTestUtils.setField(service, "granularity", granularity);
+        return service;
+    }
+}
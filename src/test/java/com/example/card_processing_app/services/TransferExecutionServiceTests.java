@@ -0,0 +1,154 @@
+package com.example.card_processing_app.services;
+
+import com.example.card_processing_app.dto.BalanceAfter;
+import com.example.card_processing_app.dto.TransferOutcome;
+import com.example.card_processing_app.dto.TransferQuote;
+import com.example.card_processing_app.entities.Account;
+import com.example.card_processing_app.entities.Card;
+import com.example.card_processing_app.entities.Transaction;
+import com.example.card_processing_app.enums.CurrencyType;
+import com.example.card_processing_app.enums.TransactionStatus;
+import com.example.card_processing_app.enums.TransactionType;
+import com.example.card_processing_app.enums.TransferExecutionMode;
+import com.example.card_processing_app.repositories.AccountBalanceRepository;
+import com.example.card_processing_app.repositories.AccountRepository;
+import com.example.card_processing_app.repositories.CardRepository;
+import com.example.card_processing_app.repositories.TransactionLedgerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// A group commit must treat a transfer without funds like execute does (no ledger rows), while the batch
+// endpoint records it as FAILED. Movements on hot accounts carry no ledger balances, and funds swept from their
+// shards count in both execution modes.
+class TransferExecutionServiceTests {
+    private CardRepository cardRepository;
+    private TransactionLedgerRepository ledgerRepository;
+    private TransferExecutionService service;
+    private Account rich;
+    private Account poor;
+    private Account receiver;
+    private Account hot;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        when(cardRepository.getReferenceById(any())).thenAnswer(invocation -> {
+            Card card = new Card();
+            card.setId(invocation.getArgument(0));
+            return card;
+        });
+
+        rich = account("1000.00");
+        poor = account("5.00");
+        receiver = account("0.00");
+        hot = account("0.00");
+        hot.setShardCount(4);
+        AccountLockService lockService = mock(AccountLockService.class);
+        for (Account account : List.of(rich, poor, receiver, hot)) {
+            when(lockService.lock(account.getId())).thenReturn(account);
+        }
+
+        ledgerRepository = mock(TransactionLedgerRepository.class);
+        service = new TransferExecutionService(cardRepository, null, mock(AccountShardService.class), null,
+                ledgerRepository, lockService);
+    }
+
+    @Test
+    void groupWritesNoLedgerRowsForTransferWithoutFunds() {
+        List<TransferOutcome> outcomes = service.executeGroup(List.of(quote(rich), quote(poor)));
+
+        assertEquals(List.of(TransactionStatus.COMPLETED, TransactionStatus.FAILED),
+                outcomes.stream().map(TransferOutcome::status).toList());
+        List<Transaction> written = writtenLedger();
+        assertEquals(2, written.size());
+        assertTrue(written.stream().allMatch(tx -> tx.getStatus() == TransactionStatus.COMPLETED));
+        assertEquals(new BigDecimal("5.00"), poor.getBalance());
+    }
+
+    @Test
+    void batchRecordsTransferWithoutFundsAsFailed() {
+        service.executeBatch(List.of(quote(rich), quote(poor)));
+
+        List<Transaction> written = writtenLedger();
+        assertEquals(4, written.size());
+        assertEquals(2, written.stream().filter(tx -> tx.getStatus() == TransactionStatus.FAILED).count());
+    }
+
+    @Test
+    void hotReceiverGetsNoLedgerBalances() {
+        service.executeBatch(List.of(quote(rich, hot)));
+
+        List<Transaction> written = writtenLedger();
+        Transaction debit = written.stream().filter(tx -> tx.getType() == TransactionType.DEBIT).findFirst().orElseThrow();
+        Transaction credit = written.stream().filter(tx -> tx.getType() == TransactionType.CREDIT).findFirst().orElseThrow();
+        assertEquals(new BigDecimal("1000.00"), debit.getBeforeBalance());
+        assertEquals(new BigDecimal("990.00"), debit.getAfterBalance());
+        assertNull(credit.getBeforeBalance());
+        assertNull(credit.getAfterBalance());
+    }
+
+    @Test
+    void atomicTransferWithinHotAccountConsolidatesShardsBeforeRejecting() {
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        AccountBalanceRepository balanceRepository = mock(AccountBalanceRepository.class);
+        AccountShardService shardService = mock(AccountShardService.class);
+        AccountLockService lockService = mock(AccountLockService.class);
+        when(lockService.guardImplicitLock(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(accountRepository.findShardCountById(hot.getId())).thenReturn(4);
+        when(balanceRepository.transferWithin(any(), any(), any()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new BalanceAfter(new BigDecimal("40.00"), true)));
+
+        TransferExecutionService atomic = new TransferExecutionService(cardRepository, accountRepository,
+                shardService, balanceRepository, ledgerRepository, lockService);
+        ReflectionTestUtils.setField(atomic, "executionMode", TransferExecutionMode.ATOMIC);
+
+        atomic.execute(quote(hot, hot));
+
+        verify(shardService).consolidate(hot.getId());
+        verify(lockService, times(2)).guardImplicitLock(eq(hot.getId()), any());
+        assertTrue(writtenLedger().stream().allMatch(tx -> tx.getAfterBalance() == null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Transaction> writtenLedger() {
+        ArgumentCaptor<List<Transaction>> ledger = ArgumentCaptor.forClass(List.class);
+        verify(ledgerRepository).write(ledger.capture());
+        return ledger.getValue();
+    }
+
+    private TransferQuote quote(Account sender) {
+        return quote(sender, receiver);
+    }
+
+    private TransferQuote quote(Account sender, Account receiver) {
+        BigDecimal amount = new BigDecimal("10.00");
+        return new TransferQuote(UUID.randomUUID(), UUID.randomUUID(), sender.getId(), receiver.getId(),
+                CurrencyType.UZS, CurrencyType.UZS, BigDecimal.ONE, amount, amount, "EXT-1", "test", "key");
+    }
+
+    private Account account(String balance) {
+        Account account = new Account();
+        account.setId(UUID.randomUUID());
+        account.setBalance(new BigDecimal(balance));
+        return account;
+    }
+}